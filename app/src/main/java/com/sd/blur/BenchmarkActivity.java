@@ -0,0 +1,129 @@
+package com.sd.blur;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.TextView;
+
+import com.sd.lib.blur.core.Blur;
+import com.sd.lib.blur.core.BlurFactory;
+import com.sd.lib.blur.core.BlurMetrics;
+import com.sd.lib.blur.core.BlurMetricsListener;
+import com.sd.lib.blur.core.source.BlurSourceFactory;
+import com.sd.lib.blur.core.strategy.BlurStrategy;
+import com.sd.lib.blur.core.strategy.BlurStrategyFactory;
+
+import java.util.Locale;
+
+/**
+ * 在相同的模糊强度下比较各个模糊策略的算法耗时
+ * <p>
+ * 半径取双重滤波模糊的级数正好对应的值，其他策略用同样的半径
+ */
+public class BenchmarkActivity extends AppCompatActivity implements View.OnClickListener
+{
+    private static final int[] RADII = {8, 18};
+    private static final int DOWN_SAMPLING = 2;
+    private static final int WARM_UP_COUNT = 3;
+    private static final int RUN_COUNT = 10;
+
+    private TextView mTvResult;
+    private boolean mIsRunning;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState)
+    {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.act_benchmark);
+        mTvResult = findViewById(R.id.tv_result);
+    }
+
+    @Override
+    public void onClick(View v)
+    {
+        if (mIsRunning)
+            return;
+
+        mIsRunning = true;
+        mTvResult.setText("running...");
+
+        final Bitmap bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.fj0);
+        new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final StringBuilder builder = new StringBuilder();
+                builder.append("size:").append(bitmap.getWidth()).append("x").append(bitmap.getHeight())
+                        .append(" downSampling:").append(DOWN_SAMPLING).append("\n");
+
+                for (int radius : RADII)
+                {
+                    builder.append("\nradius:").append(radius).append("\n");
+                    builder.append(run("java", BlurStrategyFactory.createJava(), bitmap, radius));
+                    builder.append(run("box", BlurStrategyFactory.createBox(), bitmap, radius));
+                    builder.append(run("iir", BlurStrategyFactory.createGaussian(), bitmap, radius));
+                    builder.append(run("dual", BlurStrategyFactory.createDualFilter(), bitmap, radius));
+                }
+
+                runOnUiThread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        mIsRunning = false;
+                        mTvResult.setText(builder.toString());
+                    }
+                });
+            }
+        }).start();
+    }
+
+    /**
+     * 返回平均的算法耗时
+     */
+    private String run(String name, BlurStrategy strategy, Bitmap bitmap, int radius)
+    {
+        final long[] kernelNanos = new long[1];
+
+        final Blur blur = BlurFactory.create(this, strategy);
+        blur.setDestroyAfterBlur(false);
+        blur.setRadius(radius);
+        blur.setDownSampling(DOWN_SAMPLING);
+        blur.setMetricsListener(new BlurMetricsListener()
+        {
+            @Override
+            public void onBlurMetrics(BlurMetrics metrics)
+            {
+                kernelNanos[0] += metrics.getKernelNanos();
+            }
+        });
+
+        for (int i = 0; i < WARM_UP_COUNT; i++)
+        {
+            blurAndRecycle(blur, bitmap);
+        }
+
+        kernelNanos[0] = 0;
+        for (int i = 0; i < RUN_COUNT; i++)
+        {
+            blurAndRecycle(blur, bitmap);
+        }
+        blur.destroy();
+
+        final double millis = kernelNanos[0] / (RUN_COUNT * 1000000.0);
+        return String.format(Locale.US, "%-6s%8.2fms\n", name, millis);
+    }
+
+    /**
+     * 只统计耗时，结果是完整大小的Bitmap，马上回收
+     */
+    private static void blurAndRecycle(Blur blur, Bitmap bitmap)
+    {
+        final Bitmap result = blur.blur(BlurSourceFactory.create(bitmap));
+        if (result != null)
+            result.recycle();
+    }
+}
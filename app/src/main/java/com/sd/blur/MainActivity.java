@@ -31,6 +31,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
             case R.id.btn_blur_view:
                 startActivity(new Intent(this, BlurViewActivity.class));
                 break;
+            case R.id.btn_benchmark:
+                startActivity(new Intent(this, BenchmarkActivity.class));
+                break;
         }
     }
 }
@@ -8,6 +8,7 @@ public class DefaultBlurSettings
     private final int mRadius;
     private final int mDownSampling;
     private final int mColor;
+    private final int mMaxRate;
 
     private DefaultBlurSettings(Context context)
     {
@@ -15,6 +16,7 @@ public class DefaultBlurSettings
         mRadius = resources.getInteger(R.integer.lib_blur_radius);
         mDownSampling = resources.getInteger(R.integer.lib_blur_down_sampling);
         mColor = resources.getColor(R.color.lib_blur_color);
+        mMaxRate = resources.getInteger(R.integer.lib_blur_max_rate);
     }
 
     public static DefaultBlurSettings get(Context context)
@@ -36,4 +38,9 @@ public class DefaultBlurSettings
     {
         return mColor;
     }
+
+    public int getMaxRate()
+    {
+        return mMaxRate;
+    }
 }
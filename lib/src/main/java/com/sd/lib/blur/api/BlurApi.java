@@ -1,11 +1,16 @@
 package com.sd.lib.blur.api;
 
 import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.view.View;
 import android.widget.ImageView;
 
 import com.sd.lib.blur.core.Blur;
+import com.sd.lib.blur.core.BlurMetricsListener;
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.device.BlurQualityGovernor;
 import com.sd.lib.blur.core.source.BlurSource;
 
 public interface BlurApi
@@ -50,6 +55,23 @@ public interface BlurApi
      */
     BlurApi setDestroyAfterBlur(boolean destroyAfterBlur);
 
+    /**
+     * 设置异步模糊到{@link SizedTarget}的时候，根据目标的宽高计算压缩倍数和区域，
+     * 结果的宽高是目标显示区域的宽高除以这个值，此时{@link #setDownSampling(int)}不生效
+     *
+     * @param targetDownSampling 小于等于0-不根据目标计算，默认0
+     * @return
+     */
+    BlurApi setTargetDownSampling(int targetDownSampling);
+
+    /**
+     * 设置模糊统计监听，同步模糊在调用的线程回调，异步模糊在主线程回调，null-不统计
+     *
+     * @param listener
+     * @return
+     */
+    BlurApi setMetricsListener(BlurMetricsListener listener);
+
     /**
      * 返回{@link Settings}对象，可以查询设置的参数
      *
@@ -98,6 +120,33 @@ public interface BlurApi
 
     interface Invoker
     {
+        /**
+         * 返回此次请求的参数快照，在调用{@link #blur(BlurSource)}等方法的时候生成，之后修改参数不会影响此次请求
+         * <p>
+         * 设备发热或者省电的时候压缩倍数会被{@link BlurQualityGovernor}放大
+         *
+         * @return
+         */
+        BlurOptions options();
+
+        /**
+         * 只模糊源的某个区域，返回新的对象，{@link BlurOptions#withRegion(Rect)}
+         *
+         * @param region 源的坐标系，null表示整个源
+         * @return
+         */
+        Invoker region(Rect region);
+
+        /**
+         * 把结果写入指定的Bitmap，返回新的对象，{@link Blur#blur(BlurSource, BlurOptions, Bitmap)}
+         * <p>
+         * 模糊期间不能绘制或者修改这个Bitmap
+         *
+         * @param output null表示创建新的Bitmap
+         * @return
+         */
+        Invoker output(Bitmap output);
+
         /**
          * 得到模糊的Bitmap对象
          *
@@ -115,6 +164,13 @@ public interface BlurApi
 
     interface AsyncInvoker extends Cancelable
     {
+        /**
+         * 返回此次请求的参数快照
+         *
+         * @return
+         */
+        BlurOptions options();
+
         /**
          * 模糊后设置给ImageView
          *
@@ -145,11 +201,42 @@ public interface BlurApi
         /**
          * 模糊回调
          *
-         * @param bitmap 模糊后的Bitamp，可能为null
+         * @param bitmap 模糊后的Bitamp，模糊失败或者任务被取消的时候为null，异步任务无论结果如何都会回调一次
          */
         void onBlurred(Bitmap bitmap);
     }
 
+    /**
+     * 需要知道结果是否降级的目标，实现此接口后回调{@link #onBlurred(Bitmap, boolean)}代替{@link #onBlurred(Bitmap)}
+     */
+    interface ResultTarget extends Target
+    {
+        /**
+         * 模糊回调
+         *
+         * @param bitmap   {@link Target#onBlurred(Bitmap)}
+         * @param degraded true-内存不足降级，结果比要求的更模糊，{@link Blur#isLastResultDegraded()}
+         */
+        void onBlurred(Bitmap bitmap, boolean degraded);
+    }
+
+    /**
+     * 可以提供显示区域宽高的目标
+     */
+    interface SizedTarget extends Target
+    {
+        /**
+         * 根据源的宽高计算需要模糊的源区域和结果的宽高
+         *
+         * @param sourceWidth  源的宽
+         * @param sourceHeight 源的高
+         * @param outRegion    需要模糊的源区域(源的坐标系)，保持为空表示整个源
+         * @param outSize      结果的宽高，x-宽，y-高
+         * @return false-目标还没有宽高，按照原来的参数模糊
+         */
+        boolean getTargetSize(int sourceWidth, int sourceHeight, Rect outRegion, Point outSize);
+    }
+
     interface Cancelable
     {
         /**
@@ -194,5 +281,26 @@ public interface BlurApi
          * @return
          */
         boolean isDestroyAfterBlur();
+
+        /**
+         * {@link Blur#isLastResultDegraded()}，同步模糊之后在同一个线程调用，异步模糊使用{@link ResultTarget}
+         *
+         * @return
+         */
+        boolean isLastResultDegraded();
+
+        /**
+         * {@link BlurApi#setTargetDownSampling(int)}
+         *
+         * @return
+         */
+        int getTargetDownSampling();
+
+        /**
+         * 返回当前参数的快照
+         *
+         * @return
+         */
+        BlurOptions getOptions();
     }
 }
@@ -2,7 +2,11 @@ package com.sd.lib.blur.api;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.ImageView;
 
@@ -10,22 +14,50 @@ import com.sd.lib.blur.api.target.BackgroundTarget;
 import com.sd.lib.blur.api.target.ImageViewTarget;
 import com.sd.lib.blur.api.target.MainThreadTargetWrapper;
 import com.sd.lib.blur.core.Blur;
+import com.sd.lib.blur.core.BlurExecutor;
 import com.sd.lib.blur.core.BlurFactory;
+import com.sd.lib.blur.core.BlurMetrics;
+import com.sd.lib.blur.core.BlurMetricsListener;
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.BlurTrace;
+import com.sd.lib.blur.core.device.BlurQualityGovernor;
 import com.sd.lib.blur.core.source.BlurSource;
 import com.sd.lib.blur.core.source.BlurSourceFactory;
+import com.sd.lib.blur.core.source.CapturedSource;
+import com.sd.lib.blur.core.source.MainThreadSource;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class SimpleBlurApi implements BlurApi, BlurApi.Settings
 {
     private final Blur mBlur;
+    /**
+     * 参数快照，每次修改参数都会替换为新的对象，发起模糊请求的时候保存当前的快照
+     */
+    private volatile BlurOptions mOptions;
+    private final BlurQualityGovernor mQualityGovernor;
+    private volatile BlurMetricsListener mMetricsListener;
+    private volatile int mTargetDownSampling;
+
+    /**
+     * 模糊引擎在模糊的线程回调统计，保存起来和当前请求的其他统计合并
+     */
+    private static final ThreadLocal<BlurMetrics> ENGINE_METRICS = new ThreadLocal<>();
+    private static final BlurMetricsListener ENGINE_METRICS_LISTENER = new BlurMetricsListener()
+    {
+        @Override
+        public void onBlurMetrics(BlurMetrics metrics)
+        {
+            ENGINE_METRICS.set(metrics);
+        }
+    };
 
     public SimpleBlurApi(Context context)
     {
@@ -33,6 +65,8 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
         blur.setDestroyAfterBlur(true);
 
         mBlur = BlurFactory.synchronizedBlur(blur);
+        mOptions = blur.getOptions();
+        mQualityGovernor = BlurQualityGovernor.getDefault(context);
     }
 
     private Blur getBlur()
@@ -43,28 +77,28 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
     @Override
     public BlurApi setRadius(int radius)
     {
-        getBlur().setRadius(radius);
+        mOptions = mOptions.withRadius(radius);
         return this;
     }
 
     @Override
     public BlurApi setDownSampling(int downSampling)
     {
-        getBlur().setDownSampling(downSampling);
+        mOptions = mOptions.withDownSampling(downSampling);
         return this;
     }
 
     @Override
     public BlurApi setColor(int color)
     {
-        getBlur().setColor(color);
+        mOptions = mOptions.withColor(color);
         return this;
     }
 
     @Override
     public BlurApi setKeepDownSamplingSize(boolean keepDownSamplingSize)
     {
-        getBlur().setKeepDownSamplingSize(keepDownSamplingSize);
+        mOptions = mOptions.withKeepDownSamplingSize(keepDownSamplingSize);
         return this;
     }
 
@@ -75,6 +109,48 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
         return this;
     }
 
+    @Override
+    public BlurApi setTargetDownSampling(int targetDownSampling)
+    {
+        mTargetDownSampling = targetDownSampling;
+        return this;
+    }
+
+    @Override
+    public BlurApi setMetricsListener(BlurMetricsListener listener)
+    {
+        mMetricsListener = listener;
+        getBlur().setMetricsListener(listener == null ? null : ENGINE_METRICS_LISTENER);
+        return this;
+    }
+
+    /**
+     * 取出当前线程模糊引擎的统计
+     *
+     * @return
+     */
+    private static BlurMetrics takeEngineMetrics()
+    {
+        BlurMetrics metrics = ENGINE_METRICS.get();
+        ENGINE_METRICS.remove();
+        if (metrics == null)
+            metrics = new BlurMetrics();
+        return metrics;
+    }
+
+    private void notifyCancelled(BlurOptions options)
+    {
+        final BlurMetricsListener listener = mMetricsListener;
+        if (listener == null)
+            return;
+
+        final BlurMetrics metrics = new BlurMetrics();
+        metrics.setOptions(options);
+        metrics.setAsync(true);
+        metrics.setCancelled(true);
+        listener.onBlurMetrics(metrics);
+    }
+
     @Override
     public Settings settings()
     {
@@ -84,25 +160,25 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
     @Override
     public int getRadius()
     {
-        return getBlur().getRadius();
+        return mOptions.getRadius();
     }
 
     @Override
     public int getDownSampling()
     {
-        return getBlur().getDownSampling();
+        return mOptions.getDownSampling();
     }
 
     @Override
     public int getColor()
     {
-        return getBlur().getColor();
+        return mOptions.getColor();
     }
 
     @Override
     public boolean isKeepDownSamplingSize()
     {
-        return getBlur().isKeepDownSamplingSize();
+        return mOptions.isKeepDownSamplingSize();
     }
 
     @Override
@@ -111,6 +187,68 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
         return getBlur().isDestroyAfterBlur();
     }
 
+    @Override
+    public boolean isLastResultDegraded()
+    {
+        return getBlur().isLastResultDegraded();
+    }
+
+    @Override
+    public int getTargetDownSampling()
+    {
+        return mTargetDownSampling;
+    }
+
+    @Override
+    public BlurOptions getOptions()
+    {
+        return mOptions;
+    }
+
+    /**
+     * 根据目标的宽高计算压缩倍数、区域和结果的宽高
+     *
+     * @param source
+     * @param options
+     * @param target
+     * @return
+     */
+    private BlurOptions fitTarget(BlurSource source, BlurOptions options, Target target)
+    {
+        final int targetDownSampling = mTargetDownSampling;
+        if (targetDownSampling <= 0 || !(target instanceof SizedTarget))
+            return options;
+
+        // 指定了区域的时候把区域当作源
+        final Rect area = options.getRegion() != null ? options.getRegion() : new Rect(0, 0, source.getWidth(), source.getHeight());
+        if (area.width() <= 0 || area.height() <= 0)
+            return options;
+
+        final Rect region = new Rect();
+        final Point size = new Point();
+        if (!((SizedTarget) target).getTargetSize(area.width(), area.height(), region, size))
+            return options;
+
+        if (size.x <= 0 || size.y <= 0)
+            return options;
+
+        if (region.isEmpty())
+            region.set(area);
+        else
+            region.offset(area.left, area.top);
+
+        final int outputWidth = Math.max(1, size.x / targetDownSampling);
+        final int outputHeight = Math.max(1, size.y / targetDownSampling);
+
+        // 压缩后不小于结果的宽高，再按照设备状态放大
+        final int downSampling = Math.max(1, Math.min(region.width() / outputWidth, region.height() / outputHeight))
+                * mQualityGovernor.getDownSamplingScale();
+
+        return options.withDownSampling(downSampling)
+                .withOutputSize(outputWidth, outputHeight)
+                .withRegion(region.equals(new Rect(0, 0, source.getWidth(), source.getHeight())) ? null : region);
+    }
+
     @Override
     public Invoker blur(Bitmap source)
     {
@@ -135,7 +273,8 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
     @Override
     public Invoker blur(BlurSource source)
     {
-        return new InternalInvoker(source);
+        // 设备发热或者省电的时候放大压缩倍数
+        return new InternalInvoker(source, mQualityGovernor.adjustOptions(mOptions), null);
     }
 
     @Override
@@ -145,7 +284,8 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
         {
             for (Map.Entry<AsyncInvoker, Future> item : mMapInvoker.entrySet())
             {
-                item.getValue().cancel(true);
+                if (item.getValue().cancel(true))
+                    notifyCancelled(item.getKey().options());
             }
             mMapInvoker.clear();
         }
@@ -157,26 +297,52 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
     private abstract class SourceHolder
     {
         protected final BlurSource mSource;
+        protected final BlurOptions mOptions;
+        protected final Bitmap mOutput;
 
-        public SourceHolder(BlurSource source)
+        public SourceHolder(BlurSource source, BlurOptions options, Bitmap output)
         {
             if (source == null)
                 throw new IllegalArgumentException("source is null");
             mSource = source;
+            mOptions = options;
+            mOutput = output;
         }
     }
 
     private final class InternalInvoker extends SourceHolder implements Invoker
     {
-        public InternalInvoker(BlurSource source)
+        public InternalInvoker(BlurSource source, BlurOptions options, Bitmap output)
+        {
+            super(source, options, output);
+        }
+
+        @Override
+        public BlurOptions options()
+        {
+            return mOptions;
+        }
+
+        @Override
+        public Invoker region(Rect region)
+        {
+            return new InternalInvoker(mSource, mOptions.withRegion(region), mOutput);
+        }
+
+        @Override
+        public Invoker output(Bitmap output)
         {
-            super(source);
+            return new InternalInvoker(mSource, mOptions, output);
         }
 
         @Override
         public Bitmap bitmap()
         {
-            return getBlur().blur(mSource);
+            final BlurMetricsListener listener = mMetricsListener;
+            final Bitmap bitmap = getBlur().blur(mSource, mOptions, mOutput);
+            if (listener != null)
+                listener.onBlurMetrics(takeEngineMetrics());
+            return bitmap;
         }
 
         @Override
@@ -185,18 +351,26 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
             if (mMapInvoker == null)
                 mMapInvoker = new ConcurrentHashMap<>();
 
-            return new InternalAsyncInvoker(mSource);
+            return new InternalAsyncInvoker(mSource, mOptions, mOutput);
         }
     }
 
-    private static final ExecutorService EXECUTOR_SERVICE = Executors.newCachedThreadPool();
+    private static final ExecutorService EXECUTOR_SERVICE = BlurExecutor.getDefault();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
     private Map<AsyncInvoker, Future> mMapInvoker;
 
     private final class InternalAsyncInvoker extends SourceHolder implements AsyncInvoker
     {
-        public InternalAsyncInvoker(BlurSource source)
+        private MetricsTarget mMetricsTarget;
+        /**
+         * 根据目标调整后的参数
+         */
+        private volatile BlurOptions mRequestOptions;
+
+        public InternalAsyncInvoker(BlurSource source, BlurOptions options, Bitmap output)
         {
-            super(source);
+            super(source, options, output);
+            mRequestOptions = options;
         }
 
         @Override
@@ -216,53 +390,209 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
         @Override
         public final Cancelable into(Target target)
         {
+            mRequestOptions = fitTarget(mSource, mOptions, target);
+
+            final BlurMetricsListener listener = mMetricsListener;
+            if (listener != null)
+            {
+                mMetricsTarget = new MetricsTarget(target, listener);
+                target = mMetricsTarget;
+            }
+
             notifyTargetInternal(new MainThreadTargetWrapper(target));
             return this;
         }
 
+        @Override
+        public BlurOptions options()
+        {
+            return mRequestOptions;
+        }
+
         @Override
         public final void cancel()
         {
             final Future future = mMapInvoker.remove(this);
-            if (future != null)
-                future.cancel(true);
+            if (future != null && future.cancel(true))
+                notifyCancelled(mRequestOptions);
         }
 
-        private void notifyTargetInternal(Target target)
+        private void notifyTargetInternal(final Target target)
         {
             cancel();
 
-            final Future future = EXECUTOR_SERVICE.submit(new BlurTask(new Callable<Bitmap>()
+            if (mSource instanceof MainThreadSource && Looper.myLooper() != Looper.getMainLooper())
+            {
+                /**
+                 * 不在主线程的时候把捕获的步骤post到主线程，当前线程不等待
+                 */
+                final FutureTask<Void> captureTask = new FutureTask<Void>(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        submitBlur(target);
+                    }
+                }, null)
+                {
+                    @Override
+                    protected void done()
+                    {
+                        // 捕获之前被取消
+                        if (isCancelled())
+                            target.onBlurred(null);
+                    }
+                };
+
+                mMapInvoker.put(this, captureTask);
+                MAIN_HANDLER.post(captureTask);
+            } else
+            {
+                submitBlur(target);
+            }
+        }
+
+        private void submitBlur(Target target)
+        {
+            final BlurOptions options = mRequestOptions;
+            final BlurSource source;
+            if (mSource instanceof MainThreadSource)
             {
-                @Override
-                public Bitmap call() throws Exception
+                // 在主线程捕获压缩后的内容，子线程只做模糊，不会阻塞等待主线程
+                final long captureTime = System.nanoTime();
+                BlurTrace.begin("FBlur:capture");
+                try
                 {
-                    return getBlur().blur(mSource);
+                    source = CapturedSource.capture(mSource, options);
+                } finally
+                {
+                    BlurTrace.end();
+                }
+
+                if (mMetricsTarget != null)
+                    mMetricsTarget.mCaptureNanos = System.nanoTime() - captureTime;
+
+                if (source == null)
+                {
+                    mMapInvoker.remove(this);
+                    target.onBlurred(null);
+                    return;
                 }
-            }, this, target));
+            } else
+            {
+                source = mSource;
+            }
+
+            final Future future = EXECUTOR_SERVICE.submit(new BlurTask(new BlurCallable(source, options, mOutput),
+                    this, target, mMetricsTarget));
 
             mMapInvoker.put(this, future);
         }
     }
 
+    private final class BlurCallable implements Callable<Bitmap>
+    {
+        private final BlurSource mSource;
+        private final BlurOptions mOptions;
+        private final Bitmap mOutput;
+        /**
+         * 开始模糊或者取消的时候设置，保证捕获的源只被其中一方释放
+         */
+        private final AtomicBoolean mClaimed = new AtomicBoolean();
+
+        public BlurCallable(BlurSource source, BlurOptions options, Bitmap output)
+        {
+            mSource = source;
+            mOptions = options;
+            mOutput = output;
+        }
+
+        @Override
+        public Bitmap call() throws Exception
+        {
+            if (!mClaimed.compareAndSet(false, true))
+                return null;
+
+            try
+            {
+                return getBlur().blur(mSource, mOptions, mOutput);
+            } finally
+            {
+                releaseSource();
+            }
+        }
+
+        /**
+         * 任务在开始之前被取消的时候释放捕获的源
+         */
+        public void onCancelled()
+        {
+            if (mClaimed.compareAndSet(false, true))
+                releaseSource();
+        }
+
+        private void releaseSource()
+        {
+            if (mSource instanceof CapturedSource)
+                ((CapturedSource) mSource).release();
+        }
+    }
+
     private final class BlurTask extends FutureTask<Bitmap>
     {
+        private final BlurCallable mCallable;
         private final AsyncInvoker mInvoker;
         private final Target mTarget;
+        private final MetricsTarget mMetricsTarget;
+        private final long mSubmitTime;
+        private long mStartTime;
 
-        public BlurTask(Callable<Bitmap> callable, AsyncInvoker invoker, Target target)
+        public BlurTask(BlurCallable callable, AsyncInvoker invoker, Target target, MetricsTarget metricsTarget)
         {
             super(callable);
+            mCallable = callable;
             mInvoker = invoker;
             mTarget = target;
+            mMetricsTarget = metricsTarget;
+            mSubmitTime = mMetricsTarget == null ? 0 : System.nanoTime();
+        }
+
+        @Override
+        public void run()
+        {
+            if (mMetricsTarget != null)
+                mStartTime = System.nanoTime();
+            super.run();
         }
 
         @Override
         protected void done()
         {
+            if (isCancelled())
+            {
+                mCallable.onCancelled();
+                // 取消的统计已经在取消的时候通知过了
+                if (mMetricsTarget != null)
+                    mMetricsTarget.mCancelled = true;
+                mTarget.onBlurred(null);
+                return;
+            }
+
+            Bitmap bitmap = null;
+            boolean degraded = false;
             try
             {
-                mTarget.onBlurred(get());
+                bitmap = get();
+                // done()和call()在同一个线程执行
+                degraded = getBlur().isLastResultDegraded();
+                if (mMetricsTarget != null)
+                {
+                    // 正常结束的时候在模糊的线程回调，可以取到模糊引擎的统计
+                    final BlurMetrics metrics = takeEngineMetrics();
+                    metrics.setQueueNanos(mStartTime - mSubmitTime);
+                    mMetricsTarget.mMetrics = metrics;
+                    mMetricsTarget.mDoneTime = System.nanoTime();
+                }
             } catch (InterruptedException e)
             {
                 e.printStackTrace();
@@ -273,6 +603,62 @@ class SimpleBlurApi implements BlurApi, BlurApi.Settings
             {
                 mMapInvoker.remove(mInvoker);
             }
+
+            // 失败的时候也回调，目标可以据此结束等待
+            notifyTarget(mTarget, bitmap, degraded);
+        }
+    }
+
+    private static void notifyTarget(Target target, Bitmap bitmap, boolean degraded)
+    {
+        if (target instanceof ResultTarget)
+            ((ResultTarget) target).onBlurred(bitmap, degraded);
+        else
+            target.onBlurred(bitmap);
+    }
+
+    /**
+     * 在主线程回调目标之前合并统计并通知监听
+     */
+    private static final class MetricsTarget implements ResultTarget
+    {
+        private final Target mTarget;
+        private final BlurMetricsListener mListener;
+
+        private volatile long mCaptureNanos;
+        private volatile BlurMetrics mMetrics;
+        private volatile long mDoneTime;
+        private volatile boolean mCancelled;
+
+        public MetricsTarget(Target target, BlurMetricsListener listener)
+        {
+            mTarget = target;
+            mListener = listener;
+        }
+
+        @Override
+        public void onBlurred(Bitmap bitmap)
+        {
+            onBlurred(bitmap, false);
+        }
+
+        @Override
+        public void onBlurred(Bitmap bitmap, boolean degraded)
+        {
+            if (mCancelled)
+            {
+                notifyTarget(mTarget, bitmap, degraded);
+                return;
+            }
+
+            final BlurMetrics metrics = mMetrics == null ? new BlurMetrics() : mMetrics;
+            metrics.setAsync(true);
+            metrics.setCaptureNanos(mCaptureNanos);
+            if (mDoneTime > 0)
+                metrics.setDeliveryNanos(System.nanoTime() - mDoneTime);
+
+            mListener.onBlurMetrics(metrics);
+            notifyTarget(mTarget, bitmap, degraded);
         }
     }
 }
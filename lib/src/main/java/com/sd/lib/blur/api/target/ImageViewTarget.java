@@ -1,6 +1,8 @@
 package com.sd.lib.blur.api.target;
 
 import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.graphics.Rect;
 import android.widget.ImageView;
 
 public class ImageViewTarget extends ViewTarget<ImageView>
@@ -10,6 +12,58 @@ public class ImageViewTarget extends ViewTarget<ImageView>
         super(view);
     }
 
+    /**
+     * 按照{@link ImageView#getScaleType()}计算源的哪部分会显示出来，以及显示的宽高
+     */
+    @Override
+    public boolean getTargetSize(int sourceWidth, int sourceHeight, Rect outRegion, Point outSize)
+    {
+        final ImageView view = getView();
+        if (view == null)
+            return false;
+
+        final int width = view.getWidth() - view.getPaddingLeft() - view.getPaddingRight();
+        final int height = view.getHeight() - view.getPaddingTop() - view.getPaddingBottom();
+        if (width <= 0 || height <= 0)
+            return false;
+
+        final ImageView.ScaleType scaleType = view.getScaleType();
+        if (scaleType == ImageView.ScaleType.FIT_XY)
+        {
+            outSize.set(width, height);
+            return true;
+        }
+
+        if (scaleType == ImageView.ScaleType.CENTER_CROP)
+        {
+            // 只模糊显示出来的部分
+            final float scale = Math.max((float) width / sourceWidth, (float) height / sourceHeight);
+            final int regionWidth = Math.min(sourceWidth, Math.round(width / scale));
+            final int regionHeight = Math.min(sourceHeight, Math.round(height / scale));
+            final int left = (sourceWidth - regionWidth) / 2;
+            final int top = (sourceHeight - regionHeight) / 2;
+            outRegion.set(left, top, left + regionWidth, top + regionHeight);
+            outSize.set(width, height);
+            return true;
+        }
+
+        if (scaleType == ImageView.ScaleType.FIT_CENTER
+                || scaleType == ImageView.ScaleType.FIT_START
+                || scaleType == ImageView.ScaleType.FIT_END
+                || scaleType == ImageView.ScaleType.CENTER_INSIDE)
+        {
+            float scale = Math.min((float) width / sourceWidth, (float) height / sourceHeight);
+            if (scaleType == ImageView.ScaleType.CENTER_INSIDE)
+                scale = Math.min(scale, 1.0f);
+
+            outSize.set(Math.max(1, Math.round(sourceWidth * scale)), Math.max(1, Math.round(sourceHeight * scale)));
+            return true;
+        }
+
+        // CENTER和MATRIX按照原来的宽高显示，不调整
+        return false;
+    }
+
     @Override
     public void onBlurred(Bitmap bitmap, ImageView view)
     {
@@ -6,7 +6,7 @@ import android.os.Looper;
 
 import com.sd.lib.blur.api.BlurApi;
 
-public abstract class MainThreadTarget implements BlurApi.Target
+public abstract class MainThreadTarget implements BlurApi.ResultTarget
 {
     private Handler mHandler;
 
@@ -18,11 +18,17 @@ public abstract class MainThreadTarget implements BlurApi.Target
     }
 
     @Override
-    public final void onBlurred(final Bitmap bitmap)
+    public final void onBlurred(Bitmap bitmap)
+    {
+        onBlurred(bitmap, false);
+    }
+
+    @Override
+    public final void onBlurred(final Bitmap bitmap, final boolean degraded)
     {
         if (Looper.myLooper() == Looper.getMainLooper())
         {
-            onBlurredMainThread(bitmap);
+            onBlurredMainThread(bitmap, degraded);
         } else
         {
             getHandler().post(new Runnable()
@@ -30,11 +36,22 @@ public abstract class MainThreadTarget implements BlurApi.Target
                 @Override
                 public void run()
                 {
-                    onBlurredMainThread(bitmap);
+                    onBlurredMainThread(bitmap, degraded);
                 }
             });
         }
     }
 
+    /**
+     * 在主线程回调，默认忽略是否降级
+     *
+     * @param bitmap
+     * @param degraded {@link BlurApi.ResultTarget#onBlurred(Bitmap, boolean)}
+     */
+    public void onBlurredMainThread(Bitmap bitmap, boolean degraded)
+    {
+        onBlurredMainThread(bitmap);
+    }
+
     public abstract void onBlurredMainThread(Bitmap bitmap);
 }
@@ -15,6 +15,15 @@ public final class MainThreadTargetWrapper extends MainThreadTarget
         mTarget = target;
     }
 
+    @Override
+    public void onBlurredMainThread(Bitmap bitmap, boolean degraded)
+    {
+        if (mTarget instanceof BlurApi.ResultTarget)
+            ((BlurApi.ResultTarget) mTarget).onBlurred(bitmap, degraded);
+        else
+            mTarget.onBlurred(bitmap);
+    }
+
     @Override
     public void onBlurredMainThread(Bitmap bitmap)
     {
@@ -1,13 +1,15 @@
 package com.sd.lib.blur.api.target;
 
 import android.graphics.Bitmap;
+import android.graphics.Point;
+import android.graphics.Rect;
 import android.view.View;
 
 import com.sd.lib.blur.api.BlurApi;
 
 import java.lang.ref.WeakReference;
 
-public abstract class ViewTarget<T extends View> implements BlurApi.Target
+public abstract class ViewTarget<T extends View> implements BlurApi.SizedTarget
 {
     private final WeakReference<T> mView;
 
@@ -31,5 +33,19 @@ public abstract class ViewTarget<T extends View> implements BlurApi.Target
             onBlurred(bitmap, view);
     }
 
+    /**
+     * 默认把整个源拉伸到view的宽高
+     */
+    @Override
+    public boolean getTargetSize(int sourceWidth, int sourceHeight, Rect outRegion, Point outSize)
+    {
+        final T view = getView();
+        if (view == null || view.getWidth() <= 0 || view.getHeight() <= 0)
+            return false;
+
+        outSize.set(view.getWidth(), view.getHeight());
+        return true;
+    }
+
     public abstract void onBlurred(Bitmap bitmap, T view);
 }
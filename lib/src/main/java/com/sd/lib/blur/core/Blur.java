@@ -41,6 +41,13 @@ public interface Blur
      */
     void setDestroyAfterBlur(boolean destroyAfterBlur);
 
+    /**
+     * 设置模糊统计监听，每次模糊结束后在模糊的线程回调，null-不统计
+     *
+     * @param listener
+     */
+    void setMetricsListener(BlurMetricsListener listener);
+
     /**
      * 返回模糊半径
      *
@@ -77,13 +84,46 @@ public interface Blur
     boolean isDestroyAfterBlur();
 
     /**
-     * 模糊
+     * 返回当前参数的快照
+     *
+     * @return
+     */
+    BlurOptions getOptions();
+
+    /**
+     * 模糊，使用当前参数
      *
      * @param source
      * @return
      */
     Bitmap blur(BlurSource source);
 
+    /**
+     * 模糊，使用指定的参数，不会改变当前对象的参数
+     *
+     * @param source
+     * @param options
+     * @return
+     */
+    Bitmap blur(BlurSource source, BlurOptions options);
+
+    /**
+     * 模糊，结果写入output，可以复用同一个Bitmap避免每次模糊都创建新的对象
+     *
+     * @param source
+     * @param options
+     * @param output 用来保存结果的Bitmap，需要是可修改的ARGB_8888，宽高和结果不一致的时候会忽略它创建新的对象
+     * @return 保存结果的Bitmap，可能是output也可能是新的对象
+     */
+    Bitmap blur(BlurSource source, BlurOptions options, Bitmap output);
+
+    /**
+     * 返回当前线程最近一次模糊的结果是否降级，内存不足的时候会用更大的压缩倍数重试，结果比要求的更模糊
+     *
+     * @return
+     */
+    boolean isLastResultDegraded();
+
     /**
      * 释放资源，调用此方法后依旧可以使用此对象
      */
@@ -0,0 +1,21 @@
+package com.sd.lib.blur.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 异步模糊共用的线程池
+ */
+public final class BlurExecutor
+{
+    private static final ExecutorService EXECUTOR_SERVICE = Executors.newCachedThreadPool();
+
+    private BlurExecutor()
+    {
+    }
+
+    public static ExecutorService getDefault()
+    {
+        return EXECUTOR_SERVICE;
+    }
+}
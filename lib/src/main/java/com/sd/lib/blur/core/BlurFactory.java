@@ -2,6 +2,8 @@ package com.sd.lib.blur.core;
 
 import android.content.Context;
 
+import com.sd.lib.blur.core.strategy.BlurStrategy;
+
 public final class BlurFactory
 {
     private BlurFactory()
@@ -13,6 +15,20 @@ public final class BlurFactory
         return new SimpleBlur(context);
     }
 
+    /**
+     * 使用指定的模糊策略创建
+     *
+     * @param context
+     * @param strategy {@link com.sd.lib.blur.core.strategy.BlurStrategyFactory}
+     * @return
+     */
+    public static Blur create(Context context, BlurStrategy strategy)
+    {
+        if (strategy == null)
+            throw new IllegalArgumentException("strategy is null");
+        return new SimpleBlur(context, strategy);
+    }
+
     public static Blur synchronizedBlur(Blur blur)
     {
         return new SynchronizedBlur(blur);
@@ -0,0 +1,349 @@
+package com.sd.lib.blur.core;
+
+/**
+ * 一次模糊请求的统计，时间的单位都是纳秒，由模糊流程填充
+ */
+public final class BlurMetrics
+{
+    private String mStrategy;
+    private BlurOptions mOptions;
+    private boolean mAsync;
+    private boolean mCancelled;
+    private int mEffectiveDownSampling;
+
+    private int mInputWidth;
+    private int mInputHeight;
+    private int mOutputWidth;
+    private int mOutputHeight;
+
+    private long mCaptureNanos;
+    private long mQueueNanos;
+    private long mDrawNanos;
+    private long mKernelNanos;
+    private long mScaleNanos;
+    private long mDeliveryNanos;
+
+    private long mAllocatedBytes;
+    private long mReusedBytes;
+    private int mPoolHitCount;
+    private int mPoolMissCount;
+
+    /**
+     * 模糊策略的名称
+     *
+     * @return
+     */
+    public String getStrategy()
+    {
+        return mStrategy;
+    }
+
+    public void setStrategy(String strategy)
+    {
+        mStrategy = strategy;
+    }
+
+    /**
+     * 模糊参数
+     *
+     * @return
+     */
+    public BlurOptions getOptions()
+    {
+        return mOptions;
+    }
+
+    public void setOptions(BlurOptions options)
+    {
+        mOptions = options;
+    }
+
+    /**
+     * 是否在子线程模糊
+     *
+     * @return
+     */
+    public boolean isAsync()
+    {
+        return mAsync;
+    }
+
+    public void setAsync(boolean async)
+    {
+        mAsync = async;
+    }
+
+    /**
+     * 是否被取消，取消的请求只有{@link #getOptions()}和{@link #isAsync()}有效
+     *
+     * @return
+     */
+    public boolean isCancelled()
+    {
+        return mCancelled;
+    }
+
+    public void setCancelled(boolean cancelled)
+    {
+        mCancelled = cancelled;
+    }
+
+    /**
+     * 实际使用的压缩倍数，内存不足降级的时候比{@link #getOptions()}中的大
+     *
+     * @return
+     */
+    public int getEffectiveDownSampling()
+    {
+        return mEffectiveDownSampling;
+    }
+
+    public void setEffectiveDownSampling(int effectiveDownSampling)
+    {
+        mEffectiveDownSampling = effectiveDownSampling;
+    }
+
+    /**
+     * 是否因为内存不足降低了质量，结果的宽高不变但是更模糊
+     *
+     * @return
+     */
+    public boolean isDegraded()
+    {
+        return mOptions != null && mEffectiveDownSampling > mOptions.getDownSampling();
+    }
+
+    /**
+     * 压缩后的宽
+     *
+     * @return
+     */
+    public int getInputWidth()
+    {
+        return mInputWidth;
+    }
+
+    /**
+     * 压缩后的高
+     *
+     * @return
+     */
+    public int getInputHeight()
+    {
+        return mInputHeight;
+    }
+
+    public void setInputSize(int width, int height)
+    {
+        mInputWidth = width;
+        mInputHeight = height;
+    }
+
+    /**
+     * 结果的宽
+     *
+     * @return
+     */
+    public int getOutputWidth()
+    {
+        return mOutputWidth;
+    }
+
+    /**
+     * 结果的高
+     *
+     * @return
+     */
+    public int getOutputHeight()
+    {
+        return mOutputHeight;
+    }
+
+    public void setOutputSize(int width, int height)
+    {
+        mOutputWidth = width;
+        mOutputHeight = height;
+    }
+
+    /**
+     * 在主线程捕获源的耗时，只有需要在主线程绘制的源异步模糊的时候才有
+     *
+     * @return
+     */
+    public long getCaptureNanos()
+    {
+        return mCaptureNanos;
+    }
+
+    public void setCaptureNanos(long captureNanos)
+    {
+        mCaptureNanos = captureNanos;
+    }
+
+    /**
+     * 异步模糊在线程池中等待的耗时
+     *
+     * @return
+     */
+    public long getQueueNanos()
+    {
+        return mQueueNanos;
+    }
+
+    public void setQueueNanos(long queueNanos)
+    {
+        mQueueNanos = queueNanos;
+    }
+
+    /**
+     * 把源绘制到压缩后的Bitmap的耗时
+     *
+     * @return
+     */
+    public long getDrawNanos()
+    {
+        return mDrawNanos;
+    }
+
+    public void setDrawNanos(long drawNanos)
+    {
+        mDrawNanos = drawNanos;
+    }
+
+    /**
+     * 模糊算法的耗时
+     *
+     * @return
+     */
+    public long getKernelNanos()
+    {
+        return mKernelNanos;
+    }
+
+    public void setKernelNanos(long kernelNanos)
+    {
+        mKernelNanos = kernelNanos;
+    }
+
+    /**
+     * 裁剪或者放大结果的耗时
+     *
+     * @return
+     */
+    public long getScaleNanos()
+    {
+        return mScaleNanos;
+    }
+
+    public void setScaleNanos(long scaleNanos)
+    {
+        mScaleNanos = scaleNanos;
+    }
+
+    /**
+     * 异步模糊完成后切换到主线程的耗时
+     *
+     * @return
+     */
+    public long getDeliveryNanos()
+    {
+        return mDeliveryNanos;
+    }
+
+    public void setDeliveryNanos(long deliveryNanos)
+    {
+        mDeliveryNanos = deliveryNanos;
+    }
+
+    /**
+     * 新创建的Bitmap的字节数
+     *
+     * @return
+     */
+    public long getAllocatedBytes()
+    {
+        return mAllocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes)
+    {
+        mAllocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * 复用的Bitmap的字节数，包括从池中取得的和调用方传入的
+     *
+     * @return
+     */
+    public long getReusedBytes()
+    {
+        return mReusedBytes;
+    }
+
+    public void setReusedBytes(long reusedBytes)
+    {
+        mReusedBytes = reusedBytes;
+    }
+
+    /**
+     * 从池中复用Bitmap的次数
+     *
+     * @return
+     */
+    public int getPoolHitCount()
+    {
+        return mPoolHitCount;
+    }
+
+    public void setPoolHitCount(int poolHitCount)
+    {
+        mPoolHitCount = poolHitCount;
+    }
+
+    /**
+     * 池中没有可以复用的Bitmap的次数
+     *
+     * @return
+     */
+    public int getPoolMissCount()
+    {
+        return mPoolMissCount;
+    }
+
+    public void setPoolMissCount(int poolMissCount)
+    {
+        mPoolMissCount = poolMissCount;
+    }
+
+    /**
+     * 总耗时
+     *
+     * @return
+     */
+    public long getTotalNanos()
+    {
+        return mCaptureNanos + mQueueNanos + mDrawNanos + mKernelNanos + mScaleNanos + mDeliveryNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BlurMetrics{strategy=" + mStrategy
+                + ", async=" + mAsync
+                + ", cancelled=" + mCancelled
+                + ", effectiveDownSampling=" + mEffectiveDownSampling
+                + ", input=" + mInputWidth + "x" + mInputHeight
+                + ", output=" + mOutputWidth + "x" + mOutputHeight
+                + ", capture=" + mCaptureNanos
+                + ", queue=" + mQueueNanos
+                + ", draw=" + mDrawNanos
+                + ", kernel=" + mKernelNanos
+                + ", scale=" + mScaleNanos
+                + ", delivery=" + mDeliveryNanos
+                + ", allocatedBytes=" + mAllocatedBytes
+                + ", reusedBytes=" + mReusedBytes
+                + ", poolHit=" + mPoolHitCount
+                + ", poolMiss=" + mPoolMissCount
+                + "}";
+    }
+}
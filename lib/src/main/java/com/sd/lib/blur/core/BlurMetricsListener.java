@@ -0,0 +1,14 @@
+package com.sd.lib.blur.core;
+
+/**
+ * 模糊统计监听，不设置的时候不会统计
+ */
+public interface BlurMetricsListener
+{
+    /**
+     * 一次模糊请求结束，同步模糊在模糊的线程回调，异步模糊在主线程回调，取消的时候在取消的线程回调
+     *
+     * @param metrics
+     */
+    void onBlurMetrics(BlurMetrics metrics);
+}
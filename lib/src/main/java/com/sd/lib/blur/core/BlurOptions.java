@@ -0,0 +1,239 @@
+package com.sd.lib.blur.core;
+
+import android.graphics.Color;
+import android.graphics.Rect;
+
+/**
+ * 模糊参数，不可变对象
+ * <p>
+ * 在发起模糊请求的时候创建快照并随请求传递，执行模糊的线程不需要再读取共享的参数，
+ * 也可以作为缓存和去重的key
+ */
+public final class BlurOptions
+{
+    /**
+     * 最大的模糊半径，超过{@link com.sd.lib.blur.core.strategy.BlurStrategy#MAX_KERNEL_RADIUS}的时候使用盒子模糊
+     */
+    public static final int MAX_RADIUS = 250;
+
+    private final int mRadius;
+    private final int mDownSampling;
+    private final int mColor;
+    private final boolean mKeepDownSamplingSize;
+    private final Rect mRegion;
+    private final int mOutputWidth;
+    private final int mOutputHeight;
+
+    public BlurOptions(int radius, int downSampling, int color, boolean keepDownSamplingSize)
+    {
+        this(radius, downSampling, color, keepDownSamplingSize, null, 0, 0);
+    }
+
+    private BlurOptions(int radius, int downSampling, int color, boolean keepDownSamplingSize, Rect region,
+                        int outputWidth, int outputHeight)
+    {
+        if (radius <= 0 || radius > MAX_RADIUS)
+            throw new IllegalArgumentException("radius out of range (0 < radius <= " + MAX_RADIUS + ")");
+
+        if (downSampling <= 0)
+            throw new IllegalArgumentException("downSampling out of range (downSampling > 0)");
+
+        mRadius = radius;
+        mDownSampling = downSampling;
+        mColor = color;
+        mKeepDownSamplingSize = keepDownSamplingSize;
+        mRegion = region == null ? null : new Rect(region);
+        mOutputWidth = Math.max(0, outputWidth);
+        mOutputHeight = Math.max(0, outputHeight);
+    }
+
+    /**
+     * 默认参数
+     *
+     * @return
+     */
+    public static BlurOptions create()
+    {
+        return new BlurOptions(15, 8, Color.TRANSPARENT, false);
+    }
+
+    /**
+     * 模糊半径
+     *
+     * @return
+     */
+    public int getRadius()
+    {
+        return mRadius;
+    }
+
+    /**
+     * 压缩倍数
+     *
+     * @return
+     */
+    public int getDownSampling()
+    {
+        return mDownSampling;
+    }
+
+    /**
+     * 覆盖层颜色
+     *
+     * @return
+     */
+    public int getColor()
+    {
+        return mColor;
+    }
+
+    /**
+     * 返回的模糊Bitmap是否保持压缩后的宽和高
+     *
+     * @return
+     */
+    public boolean isKeepDownSamplingSize()
+    {
+        return mKeepDownSamplingSize;
+    }
+
+    /**
+     * 要模糊的源区域(源的坐标系)，null表示整个源
+     *
+     * @return
+     */
+    public Rect getRegion()
+    {
+        return mRegion == null ? null : new Rect(mRegion);
+    }
+
+    /**
+     * 结果的宽，0表示由压缩倍数决定
+     *
+     * @return
+     */
+    public int getOutputWidth()
+    {
+        return mOutputWidth;
+    }
+
+    /**
+     * 结果的高，0表示由压缩倍数决定
+     *
+     * @return
+     */
+    public int getOutputHeight()
+    {
+        return mOutputHeight;
+    }
+
+    /**
+     * 是否指定了结果的宽高
+     *
+     * @return
+     */
+    public boolean hasOutputSize()
+    {
+        return mOutputWidth > 0 && mOutputHeight > 0;
+    }
+
+    public BlurOptions withRadius(int radius)
+    {
+        if (radius == mRadius)
+            return this;
+        return new BlurOptions(radius, mDownSampling, mColor, mKeepDownSamplingSize, mRegion, mOutputWidth, mOutputHeight);
+    }
+
+    public BlurOptions withDownSampling(int downSampling)
+    {
+        if (downSampling == mDownSampling)
+            return this;
+        return new BlurOptions(mRadius, downSampling, mColor, mKeepDownSamplingSize, mRegion, mOutputWidth, mOutputHeight);
+    }
+
+    public BlurOptions withColor(int color)
+    {
+        if (color == mColor)
+            return this;
+        return new BlurOptions(mRadius, mDownSampling, color, mKeepDownSamplingSize, mRegion, mOutputWidth, mOutputHeight);
+    }
+
+    public BlurOptions withKeepDownSamplingSize(boolean keepDownSamplingSize)
+    {
+        if (keepDownSamplingSize == mKeepDownSamplingSize)
+            return this;
+        return new BlurOptions(mRadius, mDownSampling, mColor, keepDownSamplingSize, mRegion, mOutputWidth, mOutputHeight);
+    }
+
+    /**
+     * 只模糊源的某个区域，结果Bitmap只包含这个区域
+     *
+     * @param region 源的坐标系，null表示整个源
+     * @return
+     */
+    public BlurOptions withRegion(Rect region)
+    {
+        if (region == null ? mRegion == null : region.equals(mRegion))
+            return this;
+        return new BlurOptions(mRadius, mDownSampling, mColor, mKeepDownSamplingSize, region, mOutputWidth, mOutputHeight);
+    }
+
+    /**
+     * 把结果缩放到指定的宽高，优先于{@link #isKeepDownSamplingSize()}
+     *
+     * @param width  小于等于0表示由压缩倍数决定
+     * @param height 小于等于0表示由压缩倍数决定
+     * @return
+     */
+    public BlurOptions withOutputSize(int width, int height)
+    {
+        width = Math.max(0, width);
+        height = Math.max(0, height);
+        if (width == mOutputWidth && height == mOutputHeight)
+            return this;
+        return new BlurOptions(mRadius, mDownSampling, mColor, mKeepDownSamplingSize, mRegion, width, height);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof BlurOptions))
+            return false;
+
+        final BlurOptions other = (BlurOptions) obj;
+        return mRadius == other.mRadius
+                && mDownSampling == other.mDownSampling
+                && mColor == other.mColor
+                && mKeepDownSamplingSize == other.mKeepDownSamplingSize
+                && (mRegion == null ? other.mRegion == null : mRegion.equals(other.mRegion))
+                && mOutputWidth == other.mOutputWidth
+                && mOutputHeight == other.mOutputHeight;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = mRadius;
+        result = 31 * result + mDownSampling;
+        result = 31 * result + mColor;
+        result = 31 * result + (mKeepDownSamplingSize ? 1 : 0);
+        result = 31 * result + (mRegion == null ? 0 : mRegion.hashCode());
+        result = 31 * result + mOutputWidth;
+        result = 31 * result + mOutputHeight;
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BlurOptions{radius=" + mRadius
+                + ", downSampling=" + mDownSampling
+                + ", color=" + Integer.toHexString(mColor)
+                + ", keepDownSamplingSize=" + mKeepDownSamplingSize
+                + ", region=" + mRegion
+                + ", output=" + mOutputWidth + "x" + mOutputHeight
+                + "}";
+    }
+}
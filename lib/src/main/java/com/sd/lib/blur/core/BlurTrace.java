@@ -0,0 +1,51 @@
+package com.sd.lib.blur.core;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 在系统trace中标记模糊的各个阶段，默认关闭，API 18及以上有效
+ */
+public final class BlurTrace
+{
+    private static volatile boolean sEnabled;
+
+    private BlurTrace()
+    {
+    }
+
+    /**
+     * 设置是否开启
+     *
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled()
+    {
+        return sEnabled && Build.VERSION.SDK_INT >= 18;
+    }
+
+    /**
+     * 开始一个阶段，需要和{@link #end()}成对调用
+     *
+     * @param name
+     */
+    public static void begin(String name)
+    {
+        if (isEnabled())
+            Trace.beginSection(name);
+    }
+
+    /**
+     * 结束{@link #begin(String)}开始的阶段
+     */
+    public static void end()
+    {
+        if (isEnabled())
+            Trace.endSection();
+    }
+}
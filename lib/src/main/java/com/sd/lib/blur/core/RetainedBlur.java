@@ -0,0 +1,316 @@
+package com.sd.lib.blur.core;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.strategy.BlurStrategyFactory;
+
+/**
+ * 保留上一次的模糊结果，源的部分内容变化的时候只重新模糊受影响的块，再拼接到保留的结果中
+ * <p>
+ * 结果保持压缩后的宽高，此类不是线程安全的，一般在主线程使用
+ */
+public class RetainedBlur
+{
+    /**
+     * 块的大小(压缩后的像素)
+     */
+    private static final int TILE_SIZE = 16;
+
+    private Bitmap mResult;
+    private BlurOptions mOptions;
+    private final Rect mRegion = new Rect();
+    private int mSourceWidth;
+    private int mSourceHeight;
+
+    private final Rect mDirty = new Rect();
+    private Paint mPatchPaint;
+
+    /**
+     * 还未平移到结果中的距离(源的像素)，平移只能按照压缩后的整像素进行
+     */
+    private int mShiftRemainderX;
+    private int mShiftRemainderY;
+
+    /**
+     * 返回保留的结果
+     *
+     * @return
+     */
+    public Bitmap getResult()
+    {
+        if (mResult != null && mResult.isRecycled())
+            reset();
+        return mResult;
+    }
+
+    /**
+     * 返回产生结果的参数
+     *
+     * @return
+     */
+    public BlurOptions getOptions()
+    {
+        return mOptions;
+    }
+
+    /**
+     * 返回结果对应的源区域(源的坐标系)
+     *
+     * @return
+     */
+    public Rect getRegion()
+    {
+        return mResult == null ? null : new Rect(mRegion);
+    }
+
+    /**
+     * 保留的结果是否可以用来局部更新
+     *
+     * @param sourceWidth  源的宽
+     * @param sourceHeight 源的高
+     * @param options      本次要模糊的参数
+     * @return
+     */
+    public boolean isValid(int sourceWidth, int sourceHeight, BlurOptions options)
+    {
+        return getResult() != null
+                && mSourceWidth == sourceWidth
+                && mSourceHeight == sourceHeight
+                && mOptions.equals(options);
+    }
+
+    /**
+     * 设置完整模糊的结果，会清空脏区域
+     *
+     * @param result       模糊结果，需要保持压缩后的宽高
+     * @param options      产生结果的参数
+     * @param sourceWidth  源的宽
+     * @param sourceHeight 源的高
+     */
+    public void setResult(Bitmap result, BlurOptions options, int sourceWidth, int sourceHeight)
+    {
+        if (result == null || options == null)
+        {
+            reset();
+            return;
+        }
+
+        if (!options.isKeepDownSamplingSize() && options.getDownSampling() != 1)
+            throw new IllegalArgumentException("result must keep down sampling size");
+
+        Rect region = options.getRegion();
+        if (region == null)
+            region = SimpleConfig.alignRegion(new Rect(0, 0, sourceWidth, sourceHeight), sourceWidth, sourceHeight, options.getDownSampling());
+        if (region == null)
+        {
+            reset();
+            return;
+        }
+
+        if (!result.isMutable())
+            result = result.copy(Bitmap.Config.ARGB_8888, true);
+
+        mResult = result;
+        mOptions = options;
+        mRegion.set(region);
+        mSourceWidth = sourceWidth;
+        mSourceHeight = sourceHeight;
+        mDirty.setEmpty();
+        mShiftRemainderX = 0;
+        mShiftRemainderY = 0;
+    }
+
+    /**
+     * 标记源的某个区域发生了变化
+     *
+     * @param dirty 源的坐标系
+     */
+    public void invalidate(Rect dirty)
+    {
+        if (dirty == null || dirty.isEmpty())
+            return;
+
+        if (mDirty.isEmpty())
+            mDirty.set(dirty);
+        else
+            mDirty.union(dirty);
+    }
+
+    /**
+     * 是否有待更新的脏区域
+     *
+     * @return
+     */
+    public boolean hasDirty()
+    {
+        return !mDirty.isEmpty();
+    }
+
+    /**
+     * 返回需要重新模糊的区域并清空脏区域，返回的区域是脏区域按照模糊核的范围扩大后对齐到块的结果
+     *
+     * @return null-脏区域不影响保留的结果
+     */
+    public Rect takePatchRegion()
+    {
+        if (mDirty.isEmpty() || getResult() == null)
+        {
+            mDirty.setEmpty();
+            return null;
+        }
+
+        final int downSampling = mOptions.getDownSampling();
+        // 不知道局部模糊使用的策略，按照最大的模糊核范围扩大
+        final int halo = BlurStrategyFactory.getMaxKernelReach(mOptions.getRadius()) * downSampling;
+        final int tile = TILE_SIZE * downSampling;
+
+        final Rect patch = new Rect(mDirty);
+        mDirty.setEmpty();
+
+        // 脏区域内的像素会影响模糊核范围内的结果
+        patch.inset(-halo, -halo);
+        patch.set(mRegion.left + floor(patch.left - mRegion.left, tile),
+                mRegion.top + floor(patch.top - mRegion.top, tile),
+                mRegion.left - floor(mRegion.left - patch.right, tile),
+                mRegion.top - floor(mRegion.top - patch.bottom, tile));
+
+        if (!patch.intersect(mRegion))
+            return null;
+
+        return patch;
+    }
+
+    /**
+     * 把局部模糊的结果拼接到保留的结果中
+     *
+     * @param patch   局部模糊的结果，需要保持压缩后的宽高
+     * @param options 局部模糊的参数，{@link BlurOptions#getRegion()}为{@link #takePatchRegion()}返回的区域
+     * @return false-参数和保留的结果不匹配，拼接失败，保留的结果会被清空
+     */
+    public boolean patch(Bitmap patch, BlurOptions options)
+    {
+        final Bitmap result = getResult();
+        if (result == null || patch == null || patch.isRecycled() || options == null)
+            return false;
+
+        final Rect region = options.getRegion();
+        if (region == null
+                || !mRegion.contains(region)
+                || !mOptions.equals(options.withRegion(mRegion)))
+        {
+            reset();
+            return false;
+        }
+
+        final int downSampling = mOptions.getDownSampling();
+        final int left = (region.left - mRegion.left) / downSampling;
+        final int top = (region.top - mRegion.top) / downSampling;
+
+        final Canvas canvas = new Canvas(result);
+        canvas.drawBitmap(patch, left, top, getPatchPaint());
+        return true;
+    }
+
+    /**
+     * 源的内容整体平移了(dx, dy)，例如滚动，把保留的结果按照同样的距离平移，并把新露出的区域标记为脏区域
+     *
+     * @param dx     内容在x方向移动的距离(源的像素)，向右为正
+     * @param dy     内容在y方向移动的距离(源的像素)，向下为正
+     * @param buffer 用来保存平移后的结果，宽高和结果不一致的时候从池中获取，可以为null。
+     *               原来的结果可能还在显示，不会放回池中，调用方要在新的结果显示之后再处理
+     * @return false-平移的距离超出了结果的范围，保留的结果被清空
+     */
+    public boolean shift(int dx, int dy, Bitmap buffer)
+    {
+        final Bitmap result = getResult();
+        if (result == null)
+            return false;
+
+        final int downSampling = mOptions.getDownSampling();
+        final int totalX = mShiftRemainderX + dx;
+        final int totalY = mShiftRemainderY + dy;
+        final int shiftX = Math.round((float) totalX / downSampling);
+        final int shiftY = Math.round((float) totalY / downSampling);
+
+        if (Math.abs(shiftX) >= result.getWidth() || Math.abs(shiftY) >= result.getHeight())
+        {
+            reset();
+            return false;
+        }
+
+        // 剩余不足一个压缩像素的距离留到下一次，误差不会累积
+        mShiftRemainderX = totalX - shiftX * downSampling;
+        mShiftRemainderY = totalY - shiftY * downSampling;
+
+        if (shiftX == 0 && shiftY == 0)
+            return true;
+
+        final Bitmap shifted;
+        if (buffer != null && buffer != result && !buffer.isRecycled() && buffer.isMutable()
+                && buffer.getWidth() == result.getWidth() && buffer.getHeight() == result.getHeight())
+            shifted = buffer;
+        else
+            shifted = BitmapPoolFactory.getDefault().get(result.getWidth(), result.getHeight(), Bitmap.Config.ARGB_8888);
+
+        final Canvas canvas = new Canvas(shifted);
+        // 新露出的区域在重新模糊之前先显示原来的内容，避免闪烁
+        canvas.drawBitmap(result, 0, 0, getPatchPaint());
+        canvas.drawBitmap(result, shiftX, shiftY, getPatchPaint());
+
+        mResult = shifted;
+
+        final int offsetX = shiftX * downSampling;
+        final int offsetY = shiftY * downSampling;
+        if (offsetX > 0)
+            invalidate(new Rect(mRegion.left, mRegion.top, mRegion.left + offsetX, mRegion.bottom));
+        else if (offsetX < 0)
+            invalidate(new Rect(mRegion.right + offsetX, mRegion.top, mRegion.right, mRegion.bottom));
+
+        if (offsetY > 0)
+            invalidate(new Rect(mRegion.left, mRegion.top, mRegion.right, mRegion.top + offsetY));
+        else if (offsetY < 0)
+            invalidate(new Rect(mRegion.left, mRegion.bottom + offsetY, mRegion.right, mRegion.bottom));
+
+        return true;
+    }
+
+    private Paint getPatchPaint()
+    {
+        if (mPatchPaint == null)
+        {
+            mPatchPaint = new Paint();
+            mPatchPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        }
+        return mPatchPaint;
+    }
+
+    /**
+     * 清空保留的结果
+     */
+    public void reset()
+    {
+        mShiftRemainderX = 0;
+        mShiftRemainderY = 0;
+        mResult = null;
+        mOptions = null;
+        mRegion.setEmpty();
+        mSourceWidth = 0;
+        mSourceHeight = 0;
+        mDirty.setEmpty();
+    }
+
+    private static int floor(int value, int unit)
+    {
+        int result = value / unit;
+        if (value % unit != 0 && value < 0)
+            result--;
+        return result * unit;
+    }
+}
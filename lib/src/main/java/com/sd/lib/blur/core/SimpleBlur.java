@@ -2,66 +2,104 @@ package com.sd.lib.blur.core;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.Shader;
 
 import com.sd.lib.blur.DefaultBlurSettings;
 import com.sd.lib.blur.core.config.BlurConfig;
 import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.memory.BlurMemory;
+import com.sd.lib.blur.core.memory.MemoryHolder;
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.pool.PoolStats;
 import com.sd.lib.blur.core.source.BlurSource;
+import com.sd.lib.blur.core.source.SampledSource;
 import com.sd.lib.blur.core.strategy.BlurStrategy;
 import com.sd.lib.blur.core.strategy.BlurStrategyFactory;
 
-class SimpleBlur implements Blur
+import java.util.concurrent.locks.ReentrantLock;
+
+class SimpleBlur implements Blur, MemoryHolder
 {
-    private int mRadius = 15;
-    private int mDownSampling = 8;
-    private int mColor = Color.TRANSPARENT;
-    private boolean mKeepDownSamplingSize = false;
+    /**
+     * 内存不足的时候最多把压缩倍数翻倍几次
+     */
+    private static final int MAX_DEGRADE_COUNT = 2;
+
+    private volatile BlurOptions mOptions = BlurOptions.create();
     private boolean mDestroyAfterBlur = true;
+    private volatile BlurMetricsListener mMetricsListener;
+    /**
+     * 可能在多个线程模糊，每个线程记录自己最近一次的结果是否降级
+     */
+    private final ThreadLocal<Boolean> mLastResultDegraded = new ThreadLocal<>();
 
     private final BlurStrategy mStrategy;
     private final BlurConfig mConfig;
+    private final BitmapPool mPool = BitmapPoolFactory.getDefault();
+
+    private final Paint mCopyPaint;
+    private final Paint mScalePaint;
+
+    /**
+     * 模糊的时候持有，释放内存的时候如果正在模糊则跳过
+     */
+    private final ReentrantLock mLock = new ReentrantLock();
 
     public SimpleBlur(Context context)
     {
-        mStrategy = BlurStrategyFactory.create(context);
-        mConfig = new SimpleConfig();
+        this(context, BlurStrategyFactory.create(context));
+    }
+
+    public SimpleBlur(Context context, BlurStrategy strategy)
+    {
+        mStrategy = strategy;
+        mConfig = new SimpleConfig(mPool);
+
+        mCopyPaint = new Paint();
+        mCopyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        mScalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        mScalePaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
 
         final DefaultBlurSettings settings = DefaultBlurSettings.get(context);
-        setRadius(settings.getRadius());
-        setDownSampling(settings.getDownSampling());
-        setColor(settings.getColor());
+        mOptions = mOptions.withRadius(settings.getRadius())
+                .withDownSampling(settings.getDownSampling())
+                .withColor(settings.getColor());
+
+        BlurMemory.install(context);
+        BlurMemory.register(this);
     }
 
     @Override
     public void setRadius(int radius)
     {
-        if (radius > 0 && radius <= 25)
-            mRadius = radius;
-        else
-            throw new IllegalArgumentException("radius out of range (0 < radius <= 25)");
+        mOptions = mOptions.withRadius(radius);
     }
 
     @Override
     public void setDownSampling(int downSampling)
     {
-        if (downSampling > 0)
-            mDownSampling = downSampling;
-        else
-            throw new IllegalArgumentException("downSampling out of range (downSampling > 0)");
+        mOptions = mOptions.withDownSampling(downSampling);
     }
 
     @Override
     public void setColor(int color)
     {
-        mColor = color;
+        mOptions = mOptions.withColor(color);
     }
 
     @Override
     public void setKeepDownSamplingSize(boolean keepDownSamplingSize)
     {
-        mKeepDownSamplingSize = keepDownSamplingSize;
+        mOptions = mOptions.withKeepDownSamplingSize(keepDownSamplingSize);
     }
 
     @Override
@@ -70,28 +108,34 @@ class SimpleBlur implements Blur
         mDestroyAfterBlur = destroyAfterBlur;
     }
 
+    @Override
+    public void setMetricsListener(BlurMetricsListener listener)
+    {
+        mMetricsListener = listener;
+    }
+
     @Override
     public int getRadius()
     {
-        return mRadius;
+        return mOptions.getRadius();
     }
 
     @Override
     public int getDownSampling()
     {
-        return mDownSampling;
+        return mOptions.getDownSampling();
     }
 
     @Override
     public int getColor()
     {
-        return mColor;
+        return mOptions.getColor();
     }
 
     @Override
     public boolean isKeepDownSamplingSize()
     {
-        return mKeepDownSamplingSize;
+        return mOptions.isKeepDownSamplingSize();
     }
 
     @Override
@@ -100,60 +144,401 @@ class SimpleBlur implements Blur
         return mDestroyAfterBlur;
     }
 
+    @Override
+    public BlurOptions getOptions()
+    {
+        return mOptions;
+    }
+
     @Override
     public Bitmap blur(BlurSource source)
+    {
+        return blur(source, mOptions);
+    }
+
+    @Override
+    public Bitmap blur(BlurSource source, BlurOptions options)
+    {
+        return blur(source, options, null);
+    }
+
+    @Override
+    public Bitmap blur(BlurSource source, BlurOptions options, Bitmap output)
     {
         if (source == null)
+        {
+            mLastResultDegraded.set(false);
             return null;
+        }
+
+        if (options == null)
+            throw new IllegalArgumentException("options is null");
+
+        mLastResultDegraded.set(false);
 
+        // 没有监听的时候不统计
+        final BlurMetricsListener listener = mMetricsListener;
+        final BlurMetrics metrics = listener == null ? null : new BlurMetrics();
+        final PoolStats poolStats = metrics == null ? null : mPool.getThreadStats();
+
+        mLock.lock();
+        BlurTrace.begin("FBlur:blur");
         try
         {
-            if (!mConfig.init(source.getWidth(), source.getHeight(), mDownSampling))
-                return null;
+            int downSampling = options.getDownSampling();
+            for (int i = 0; ; i++)
+            {
+                try
+                {
+                    final Bitmap result = i == 0
+                            ? blurOnce(source, options, output, metrics)
+                            : blurDegraded(source, options, downSampling, output, metrics);
+                    mLastResultDegraded.set(i > 0 && result != null);
 
-            if (mConfig.getBitmapInput().isRecycled())
-                throw new RuntimeException("bitmap for canvas is recycled");
+                    if (metrics != null && result != null)
+                    {
+                        final PoolStats stats = mPool.getThreadStats().minus(poolStats);
+                        metrics.setStrategy(mStrategy.getName());
+                        metrics.setOptions(options);
+                        metrics.setEffectiveDownSampling(downSampling);
+                        metrics.setOutputSize(result.getWidth(), result.getHeight());
+                        metrics.setAllocatedBytes(metrics.getAllocatedBytes() + stats.getAllocatedBytes());
+                        metrics.setReusedBytes(metrics.getReusedBytes() + stats.getReusedBytes());
+                        metrics.setPoolHitCount(stats.getHitCount());
+                        metrics.setPoolMissCount(stats.getMissCount());
+                        listener.onBlurMetrics(metrics);
+                    }
+                    return result;
+                } catch (OutOfMemoryError e)
+                {
+                    releaseMemory();
+                    if (i >= MAX_DEGRADE_COUNT)
+                    {
+                        // 没有结果，不能保留上一次模糊的状态
+                        mLastResultDegraded.set(false);
+                        return null;
+                    }
 
-            source.draw(mConfig.getCanvas());
-            return blurInternal(mConfig);
+                    // 压缩倍数翻倍，需要的内存大约是原来的四分之一
+                    downSampling *= 2;
+                }
+            }
         } finally
         {
+            BlurTrace.end();
             if (mDestroyAfterBlur)
                 destroy();
+            mLock.unlock();
+            BlurMemory.notifyUsed();
+        }
+    }
+
+    @Override
+    public boolean isLastResultDegraded()
+    {
+        return Boolean.TRUE.equals(mLastResultDegraded.get());
+    }
+
+    private Bitmap blurOnce(BlurSource source, BlurOptions options, Bitmap output, BlurMetrics metrics)
+    {
+        final long time = metrics == null ? 0 : System.nanoTime();
+
+        if (!mConfig.init(source.getWidth(), source.getHeight(), options.getDownSampling(), options.getRegion(),
+                mStrategy.getKernelReach(options.getRadius())))
+            return null;
+
+        final Bitmap bitmapInput = mConfig.getBitmapInput();
+        if (bitmapInput.isRecycled())
+            throw new RuntimeException("bitmap for canvas is recycled");
+
+        BlurTrace.begin("FBlur:draw");
+        try
+        {
+            bitmapInput.eraseColor(Color.TRANSPARENT);
+            if (source instanceof SampledSource)
+                ((SampledSource) source).prepare(options.getDownSampling());
+            try
+            {
+                SimpleConfig.drawSource(source, mConfig.getCanvas(), mConfig.getDrawRegion());
+            } finally
+            {
+                if (source instanceof SampledSource)
+                    ((SampledSource) source).release();
+            }
+        } finally
+        {
+            BlurTrace.end();
+        }
+
+        if (metrics != null)
+        {
+            metrics.setDrawNanos(System.nanoTime() - time);
+            metrics.setInputSize(bitmapInput.getWidth(), bitmapInput.getHeight());
         }
+
+        return blurInternal(mConfig, options, output, metrics);
     }
 
-    private Bitmap blurInternal(BlurConfig config)
+    /**
+     * 用更大的压缩倍数模糊，再把结果缩放到原来的压缩倍数对应的宽高和位置，调用方看到的结果只是更模糊
+     *
+     * @param downSampling 实际使用的压缩倍数
+     */
+    private Bitmap blurDegraded(BlurSource source, BlurOptions options, int downSampling, Bitmap output, BlurMetrics metrics)
+    {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int requestDownSampling = options.getDownSampling();
+        final boolean keepSize = !options.hasOutputSize() && (requestDownSampling == 1 || options.isKeepDownSamplingSize());
+
+        final Rect region = options.getRegion();
+        final Rect requestArea;
+        final Rect degradedArea;
+        if (region == null)
+        {
+            requestArea = new Rect(0, 0, width, height);
+            degradedArea = requestArea;
+        } else
+        {
+            requestArea = SimpleConfig.alignRegion(region, width, height, requestDownSampling);
+            degradedArea = SimpleConfig.alignRegion(region, width, height, downSampling);
+            if (requestArea == null || degradedArea == null)
+                return null;
+        }
+
+        final int resultWidth;
+        final int resultHeight;
+        if (options.hasOutputSize())
+        {
+            resultWidth = options.getOutputWidth();
+            resultHeight = options.getOutputHeight();
+        } else if (!keepSize)
+        {
+            resultWidth = requestArea.width();
+            resultHeight = requestArea.height();
+        } else if (region == null)
+        {
+            resultWidth = (int) (width * (1.0f / requestDownSampling));
+            resultHeight = (int) (height * (1.0f / requestDownSampling));
+        } else
+        {
+            resultWidth = requestArea.width() / requestDownSampling;
+            resultHeight = requestArea.height() / requestDownSampling;
+        }
+        if (resultWidth <= 0 || resultHeight <= 0)
+            return null;
+
+        final Bitmap bitmapDegraded = blurOnce(source,
+                options.withDownSampling(downSampling).withKeepDownSamplingSize(true).withOutputSize(0, 0),
+                null, metrics);
+        if (bitmapDegraded == null)
+            return null;
+
+        try
+        {
+            final long time = metrics == null ? 0 : System.nanoTime();
+            final boolean reuseOutput = isReusable(output, resultWidth, resultHeight);
+            final Bitmap bitmapResult;
+
+            BlurTrace.begin("FBlur:scale");
+            try
+            {
+                bitmapResult = reuseOutput ? output : Bitmap.createBitmap(resultWidth, resultHeight, Bitmap.Config.ARGB_8888);
+
+                // 对齐到更大的压缩倍数之后区域可能会不一样，按照源的坐标系映射，边缘用最近的像素填充
+                final float scaleX;
+                final float scaleY;
+                if (options.hasOutputSize())
+                {
+                    scaleX = (float) resultWidth / requestArea.width();
+                    scaleY = (float) resultHeight / requestArea.height();
+                } else
+                {
+                    scaleX = keepSize ? 1.0f / requestDownSampling : 1.0f;
+                    scaleY = scaleX;
+                }
+                final Matrix matrix = new Matrix();
+                matrix.setScale(downSampling * scaleX, downSampling * scaleY);
+                matrix.postTranslate((degradedArea.left - requestArea.left) * scaleX, (degradedArea.top - requestArea.top) * scaleY);
+
+                final BitmapShader shader = new BitmapShader(bitmapDegraded, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+                shader.setLocalMatrix(matrix);
+
+                final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+                paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+                paint.setShader(shader);
+                new Canvas(bitmapResult).drawRect(0, 0, resultWidth, resultHeight, paint);
+            } finally
+            {
+                BlurTrace.end();
+            }
+
+            if (metrics != null)
+                metrics.setScaleNanos(metrics.getScaleNanos() + System.nanoTime() - time);
+
+            recordOutput(bitmapResult, reuseOutput, metrics);
+            return bitmapResult;
+        } finally
+        {
+            mPool.put(bitmapDegraded);
+        }
+    }
+
+    /**
+     * 内存不足的时候释放自己持有的和池中的Bitmap，并通知释放其他没有在使用的内存
+     */
+    private void releaseMemory()
+    {
+        mStrategy.destroy();
+        mConfig.recycle();
+        mPool.clear();
+        BlurMemory.notifyLowMemory();
+    }
+
+    private Bitmap blurInternal(BlurConfig config, BlurOptions options, Bitmap output, BlurMetrics metrics)
     {
-        final Bitmap bitmapOutput = config.newBitmapOutput();
         final Bitmap bitmapInput = config.getBitmapInput();
         final Canvas canvas = config.getCanvas();
+        canvas.drawColor(options.getColor());
 
-        canvas.drawColor(mColor);
-        mStrategy.blur(mRadius, bitmapInput, bitmapOutput);
+        final Rect crop = config.getCropRect();
+        final boolean outputSize = options.hasOutputSize();
+        final boolean keepSize = !outputSize && (options.getDownSampling() == 1 || options.isKeepDownSamplingSize());
 
-        if (bitmapInput.isRecycled() || bitmapOutput.isRecycled())
-            throw new RuntimeException("bitmapInput or bitmapOutput is recycled ");
-
-        Bitmap bitmapResult = null;
-        if (mDownSampling == 1 || mKeepDownSamplingSize)
+        final int resultWidth;
+        final int resultHeight;
+        if (outputSize)
+        {
+            resultWidth = options.getOutputWidth();
+            resultHeight = options.getOutputHeight();
+        } else if (keepSize)
         {
-            bitmapResult = bitmapOutput;
+            resultWidth = crop == null ? bitmapInput.getWidth() : crop.width();
+            resultHeight = crop == null ? bitmapInput.getHeight() : crop.height();
         } else
         {
-            bitmapResult = Bitmap.createScaledBitmap(bitmapOutput, config.getWidth(), config.getHeight(), true);
+            resultWidth = config.getWidth();
+            resultHeight = config.getHeight();
         }
 
-        if (bitmapOutput != bitmapResult)
-            bitmapOutput.recycle();
+        final boolean reuseOutput = isReusable(output, resultWidth, resultHeight);
 
-        return bitmapResult;
+        if (keepSize && crop == null)
+        {
+            // 不需要裁剪和放大，直接模糊到结果中
+            final Bitmap bitmapOutput = reuseOutput ? output : config.newBitmapOutput();
+            blurKernel(options.getRadius(), bitmapInput, bitmapOutput, metrics);
+            recordOutput(bitmapOutput, reuseOutput, metrics);
+            return bitmapOutput;
+        }
+
+        final Bitmap bitmapOutput = mPool.get(bitmapInput.getWidth(), bitmapInput.getHeight(), Bitmap.Config.ARGB_8888);
+        try
+        {
+            blurKernel(options.getRadius(), bitmapInput, bitmapOutput, metrics);
+
+            final long time = metrics == null ? 0 : System.nanoTime();
+            final Bitmap bitmapResult;
+
+            BlurTrace.begin("FBlur:scale");
+            try
+            {
+                bitmapResult = reuseOutput ? output : Bitmap.createBitmap(resultWidth, resultHeight, Bitmap.Config.ARGB_8888);
+
+                // 去掉区域四周为了模糊额外绘制的范围，或者放大到原来的宽高
+                final Canvas canvasResult = new Canvas(bitmapResult);
+                canvasResult.drawBitmap(bitmapOutput, crop, new Rect(0, 0, resultWidth, resultHeight), keepSize ? mCopyPaint : mScalePaint);
+            } finally
+            {
+                BlurTrace.end();
+            }
+
+            if (metrics != null)
+                metrics.setScaleNanos(System.nanoTime() - time);
+
+            recordOutput(bitmapResult, reuseOutput, metrics);
+            return bitmapResult;
+        } finally
+        {
+            mPool.put(bitmapOutput);
+        }
+    }
+
+    private void blurKernel(int radius, Bitmap bitmapInput, Bitmap bitmapOutput, BlurMetrics metrics)
+    {
+        final long time = metrics == null ? 0 : System.nanoTime();
+        BlurTrace.begin("FBlur:kernel");
+        try
+        {
+            mStrategy.blur(radius, bitmapInput, bitmapOutput);
+        } finally
+        {
+            BlurTrace.end();
+        }
+
+        if (metrics != null)
+            metrics.setKernelNanos(System.nanoTime() - time);
+
+        if (bitmapInput.isRecycled() || bitmapOutput.isRecycled())
+            throw new RuntimeException("bitmapInput or bitmapOutput is recycled ");
+    }
+
+    /**
+     * 统计不是从池中取得的结果Bitmap
+     */
+    private static void recordOutput(Bitmap bitmap, boolean reused, BlurMetrics metrics)
+    {
+        if (metrics == null)
+            return;
+
+        if (reused)
+            metrics.setReusedBytes(metrics.getReusedBytes() + bitmap.getByteCount());
+        else
+            metrics.setAllocatedBytes(metrics.getAllocatedBytes() + bitmap.getByteCount());
+    }
+
+    private static boolean isReusable(Bitmap bitmap, int width, int height)
+    {
+        return bitmap != null
+                && !bitmap.isRecycled()
+                && bitmap.isMutable()
+                && bitmap.getWidth() == width
+                && bitmap.getHeight() == height
+                && bitmap.getConfig() == Bitmap.Config.ARGB_8888;
+    }
+
+    @Override
+    public long getHeldBytes()
+    {
+        return mConfig.getByteCount();
+    }
+
+    @Override
+    public void trimMemory(int level)
+    {
+        if (!mLock.tryLock())
+            return;
+
+        try
+        {
+            destroy();
+        } finally
+        {
+            mLock.unlock();
+        }
     }
 
     @Override
     public void destroy()
     {
-        mStrategy.destroy();
-        mConfig.recycle();
+        mLock.lock();
+        try
+        {
+            mStrategy.destroy();
+            mConfig.recycle();
+        } finally
+        {
+            mLock.unlock();
+        }
     }
 }
@@ -45,6 +45,12 @@ class SynchronizedBlur implements Blur
         mBlur.setDestroyAfterBlur(destroyAfterBlur);
     }
 
+    @Override
+    public synchronized void setMetricsListener(BlurMetricsListener listener)
+    {
+        mBlur.setMetricsListener(listener);
+    }
+
     @Override
     public int getRadius()
     {
@@ -75,12 +81,36 @@ class SynchronizedBlur implements Blur
         return mBlur.isDestroyAfterBlur();
     }
 
+    @Override
+    public BlurOptions getOptions()
+    {
+        return mBlur.getOptions();
+    }
+
     @Override
     public synchronized Bitmap blur(BlurSource source)
     {
         return mBlur.blur(source);
     }
 
+    @Override
+    public synchronized Bitmap blur(BlurSource source, BlurOptions options)
+    {
+        return mBlur.blur(source, options);
+    }
+
+    @Override
+    public synchronized Bitmap blur(BlurSource source, BlurOptions options, Bitmap output)
+    {
+        return mBlur.blur(source, options, output);
+    }
+
+    @Override
+    public boolean isLastResultDegraded()
+    {
+        return mBlur.isLastResultDegraded();
+    }
+
     @Override
     public synchronized void destroy()
     {
@@ -2,20 +2,64 @@ package com.sd.lib.blur.core.config;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 
 public interface BlurConfig
 {
     boolean init(int width, int height, int downSampling);
 
+    /**
+     * 初始化
+     *
+     * @param width        源的宽
+     * @param height       源的高
+     * @param downSampling 压缩倍数
+     * @param region       要模糊的源区域，null表示整个源
+     * @param reach        模糊核的范围(压缩后的像素)，区域四周需要额外绘制的范围，{@link com.sd.lib.blur.core.strategy.BlurStrategy#getKernelReach(int)}
+     * @return
+     */
+    boolean init(int width, int height, int downSampling, Rect region, int reach);
+
+    /**
+     * 返回输出区域的宽
+     *
+     * @return
+     */
     int getWidth();
 
+    /**
+     * 返回输出区域的高
+     *
+     * @return
+     */
     int getHeight();
 
+    /**
+     * 返回需要绘制的源区域(源的坐标系)，包含四周额外绘制的范围
+     *
+     * @return
+     */
+    Rect getDrawRegion();
+
+    /**
+     * 返回输出区域在模糊后的Bitmap中的位置，null表示不需要裁剪
+     *
+     * @return
+     */
+    Rect getCropRect();
+
     Bitmap newBitmapOutput();
 
     Bitmap getBitmapInput();
 
     Canvas getCanvas();
 
+    /**
+     * 返回持有的Bitmap占用的字节数
+     *
+     * @return
+     */
+    int getByteCount();
+
     void recycle();
 }
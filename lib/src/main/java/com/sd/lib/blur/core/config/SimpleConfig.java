@@ -2,9 +2,17 @@ package com.sd.lib.blur.core.config;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.source.BlurSource;
+import com.sd.lib.blur.core.source.RegionBlurSource;
 
 public class SimpleConfig implements BlurConfig
 {
+    private final BitmapPool mPool;
+
     private int mWidth;
     private int mHeight;
 
@@ -12,36 +20,168 @@ public class SimpleConfig implements BlurConfig
     private int mScaledWidth;
     private int mScaledHeight;
 
+    private final Rect mDrawRegion = new Rect();
+    private final Rect mCropRect = new Rect();
+    private boolean mCrop;
+
     private Bitmap mBitmapInput;
     private Canvas mCanvas;
 
     private boolean mHasInit;
 
+    public SimpleConfig()
+    {
+        this(BitmapPoolFactory.getDefault());
+    }
+
+    public SimpleConfig(BitmapPool pool)
+    {
+        if (pool == null)
+            throw new IllegalArgumentException("pool is null");
+        mPool = pool;
+    }
+
     @Override
     public boolean init(int width, int height, int downSampling)
+    {
+        return init(width, height, downSampling, null, 0);
+    }
+
+    @Override
+    public boolean init(int width, int height, int downSampling, Rect region, int reach)
     {
         mHasInit = false;
+        mCanvas = null;
 
-        if (width <= 0 || height <= 0 || downSampling < 0)
+        if (width <= 0 || height <= 0 || downSampling <= 0)
             return false;
 
         final float scale = 1.0f / downSampling;
-        final int scaledWidth = (int) (width * scale);
-        final int scaledHeight = (int) (height * scale);
-        if (scaledWidth <= 0 || scaledHeight <= 0)
-            return false;
 
-        mWidth = width;
-        mHeight = height;
+        if (region == null)
+        {
+            final int scaledWidth = (int) (width * scale);
+            final int scaledHeight = (int) (height * scale);
+            if (scaledWidth <= 0 || scaledHeight <= 0)
+                return false;
 
-        mScale = scale;
-        mScaledWidth = scaledWidth;
-        mScaledHeight = scaledHeight;
+            mWidth = width;
+            mHeight = height;
+            mScaledWidth = scaledWidth;
+            mScaledHeight = scaledHeight;
+            mDrawRegion.set(0, 0, width, height);
+            mCrop = false;
+        } else
+        {
+            final Rect aligned = alignRegion(region, width, height, downSampling);
+            if (aligned == null)
+                return false;
+
+            final int halo = Math.max(reach, 0) * downSampling;
+            final int maxRight = (width / downSampling) * downSampling;
+            final int maxBottom = (height / downSampling) * downSampling;
+            mDrawRegion.set(Math.max(0, aligned.left - halo),
+                    Math.max(0, aligned.top - halo),
+                    Math.min(maxRight, aligned.right + halo),
+                    Math.min(maxBottom, aligned.bottom + halo));
 
+            mWidth = aligned.width();
+            mHeight = aligned.height();
+            mScaledWidth = mDrawRegion.width() / downSampling;
+            mScaledHeight = mDrawRegion.height() / downSampling;
+
+            final int cropLeft = (aligned.left - mDrawRegion.left) / downSampling;
+            final int cropTop = (aligned.top - mDrawRegion.top) / downSampling;
+            mCropRect.set(cropLeft, cropTop,
+                    cropLeft + aligned.width() / downSampling,
+                    cropTop + aligned.height() / downSampling);
+            mCrop = !mDrawRegion.equals(aligned);
+        }
+
+        mScale = scale;
         mHasInit = true;
         return true;
     }
 
+    /**
+     * 把区域向外对齐到压缩倍数的整数倍，并限制在源的范围内，
+     * 对齐之后区域在压缩后的Bitmap中的位置是整数，多次模糊相邻的区域可以无缝拼接
+     *
+     * @param region       源的坐标系
+     * @param width        源的宽
+     * @param height       源的高
+     * @param downSampling 压缩倍数
+     * @return null-区域和源没有交集
+     */
+    public static Rect alignRegion(Rect region, int width, int height, int downSampling)
+    {
+        if (region == null || downSampling <= 0)
+            return null;
+
+        final int maxRight = (width / downSampling) * downSampling;
+        final int maxBottom = (height / downSampling) * downSampling;
+
+        final int left = Math.max(0, floor(region.left, downSampling));
+        final int top = Math.max(0, floor(region.top, downSampling));
+        final int right = Math.min(maxRight, -floor(-region.right, downSampling));
+        final int bottom = Math.min(maxBottom, -floor(-region.bottom, downSampling));
+        if (right <= left || bottom <= top)
+            return null;
+
+        return new Rect(left, top, right, bottom);
+    }
+
+    /**
+     * 返回不大于压缩倍数的2的整数次幂，按照压缩倍数解码图片的时候作为{@link android.graphics.BitmapFactory.Options#inSampleSize}
+     *
+     * @param downSampling
+     * @return
+     */
+    public static int getSampleSize(int downSampling)
+    {
+        int sampleSize = 1;
+        while (sampleSize * 2 <= downSampling)
+        {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * 绘制源的某个区域，没有实现{@link RegionBlurSource}的源裁剪到区域内绘制
+     *
+     * @param source
+     * @param canvas
+     * @param region 源的坐标系，null表示整个源
+     */
+    public static void drawSource(BlurSource source, Canvas canvas, Rect region)
+    {
+        if (source instanceof RegionBlurSource)
+        {
+            ((RegionBlurSource) source).draw(canvas, region);
+            return;
+        }
+
+        if (region == null)
+        {
+            source.draw(canvas);
+            return;
+        }
+
+        canvas.save();
+        canvas.clipRect(region);
+        source.draw(canvas);
+        canvas.restore();
+    }
+
+    private static int floor(int value, int unit)
+    {
+        int result = value / unit;
+        if (value % unit != 0 && value < 0)
+            result--;
+        return result * unit;
+    }
+
     private void checkInit()
     {
         if (!mHasInit)
@@ -60,6 +200,20 @@ public class SimpleConfig implements BlurConfig
         return mHeight;
     }
 
+    @Override
+    public Rect getDrawRegion()
+    {
+        checkInit();
+        return new Rect(mDrawRegion);
+    }
+
+    @Override
+    public Rect getCropRect()
+    {
+        checkInit();
+        return mCrop ? new Rect(mCropRect) : null;
+    }
+
     @Override
     public Bitmap newBitmapOutput()
     {
@@ -78,12 +232,10 @@ public class SimpleConfig implements BlurConfig
         {
 
             if (mBitmapInput != null)
-                mBitmapInput.recycle();
+                mPool.put(mBitmapInput);
 
-            mBitmapInput = Bitmap.createBitmap(mScaledWidth, mScaledHeight, Bitmap.Config.ARGB_8888);
-
-            mCanvas = new Canvas(mBitmapInput);
-            mCanvas.scale(mScale, mScale);
+            mBitmapInput = mPool.get(mScaledWidth, mScaledHeight, Bitmap.Config.ARGB_8888);
+            mCanvas = null;
         }
         return mBitmapInput;
     }
@@ -92,16 +244,43 @@ public class SimpleConfig implements BlurConfig
     public Canvas getCanvas()
     {
         getBitmapInput();
+        if (mCanvas == null)
+        {
+            mCanvas = new Canvas(mBitmapInput);
+            mCanvas.scale(mScale, mScale);
+            mCanvas.translate(-mDrawRegion.left, -mDrawRegion.top);
+        }
         return mCanvas;
     }
 
+    /**
+     * 返回输入的Bitmap，并且此对象不再持有它，调用方负责回收
+     *
+     * @return
+     */
+    public Bitmap detachBitmapInput()
+    {
+        final Bitmap bitmap = getBitmapInput();
+        mBitmapInput = null;
+        mCanvas = null;
+        return bitmap;
+    }
+
+    @Override
+    public int getByteCount()
+    {
+        final Bitmap bitmap = mBitmapInput;
+        return bitmap == null ? 0 : bitmap.getByteCount();
+    }
+
     @Override
     public void recycle()
     {
         mHasInit = false;
+        mCanvas = null;
         if (mBitmapInput != null)
         {
-            mBitmapInput.recycle();
+            mPool.put(mBitmapInput);
             mBitmapInput = null;
         }
     }
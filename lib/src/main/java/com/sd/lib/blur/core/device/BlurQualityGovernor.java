@@ -0,0 +1,276 @@
+package com.sd.lib.blur.core.device;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.sd.lib.blur.core.BlurOptions;
+
+/**
+ * 根据设备的发热和省电状态降低模糊质量
+ * <p>
+ * 状态越差等级越高，每个等级对应一个压缩倍数的放大倍数和每秒最多模糊的次数，
+ * 设备状态最多每隔{@link #STATE_CHECK_INTERVAL}毫秒读取一次
+ */
+public class BlurQualityGovernor
+{
+    /**
+     * 正常
+     */
+    public static final int LEVEL_NORMAL = 0;
+    /**
+     * 降低质量
+     */
+    public static final int LEVEL_REDUCED = 1;
+    /**
+     * 最低质量
+     */
+    public static final int LEVEL_MINIMAL = 2;
+
+    private static final long STATE_CHECK_INTERVAL = 1000;
+
+    private static BlurQualityGovernor sDefault;
+
+    private DeviceStateProvider mProvider;
+    private boolean mEnabled = true;
+
+    private int mReducedThermalStatus = DeviceStateProvider.THERMAL_STATUS_MODERATE;
+    private int mMinimalThermalStatus = DeviceStateProvider.THERMAL_STATUS_SEVERE;
+    private int mPowerSaveLevel = LEVEL_REDUCED;
+
+    private final int[] mDownSamplingScales = {1, 2, 4};
+    private final int[] mMaxRates = {0, 30, 15};
+
+    private int mLevel = LEVEL_NORMAL;
+    private int mThermalStatus = DeviceStateProvider.THERMAL_STATUS_NONE;
+    private boolean mPowerSaveMode;
+    private long mLastCheckTime = -1;
+
+    private OnLevelChangeListener mOnLevelChangeListener;
+
+    public BlurQualityGovernor(DeviceStateProvider provider)
+    {
+        if (provider == null)
+            throw new IllegalArgumentException("provider is null");
+        mProvider = provider;
+    }
+
+    /**
+     * 返回进程内共享的对象，默认从系统读取设备状态
+     *
+     * @param context
+     * @return
+     */
+    public static synchronized BlurQualityGovernor getDefault(Context context)
+    {
+        if (sDefault == null)
+            sDefault = new BlurQualityGovernor(DeviceStateProviderFactory.create(context));
+        return sDefault;
+    }
+
+    /**
+     * 设置设备状态的来源，例如测试的时候设置{@link FakeDeviceStateProvider}
+     *
+     * @param provider
+     */
+    public synchronized void setProvider(DeviceStateProvider provider)
+    {
+        if (provider == null)
+            throw new IllegalArgumentException("provider is null");
+        mProvider = provider;
+        mLastCheckTime = -1;
+    }
+
+    /**
+     * 设置是否根据设备状态降低质量，默认true
+     *
+     * @param enabled
+     */
+    public synchronized void setEnabled(boolean enabled)
+    {
+        mEnabled = enabled;
+        mLastCheckTime = -1;
+    }
+
+    /**
+     * 设置发热状态的阈值
+     *
+     * @param reduced 大于等于这个状态的时候{@link #LEVEL_REDUCED}，默认{@link DeviceStateProvider#THERMAL_STATUS_MODERATE}
+     * @param minimal 大于等于这个状态的时候{@link #LEVEL_MINIMAL}，默认{@link DeviceStateProvider#THERMAL_STATUS_SEVERE}
+     */
+    public synchronized void setThermalThresholds(int reduced, int minimal)
+    {
+        if (reduced > minimal)
+            throw new IllegalArgumentException("reduced must be <= minimal");
+        mReducedThermalStatus = reduced;
+        mMinimalThermalStatus = minimal;
+        mLastCheckTime = -1;
+    }
+
+    /**
+     * 设置省电模式下至少使用的等级，默认{@link #LEVEL_REDUCED}
+     *
+     * @param level
+     */
+    public synchronized void setPowerSaveLevel(int level)
+    {
+        checkLevel(level);
+        mPowerSaveLevel = level;
+        mLastCheckTime = -1;
+    }
+
+    /**
+     * 设置某个等级的调整方式
+     *
+     * @param level             等级
+     * @param downSamplingScale 压缩倍数的放大倍数
+     * @param maxRate           每秒最多模糊几次，小于等于0-不限制
+     */
+    public synchronized void setLevelPolicy(int level, int downSamplingScale, int maxRate)
+    {
+        checkLevel(level);
+        if (downSamplingScale <= 0)
+            throw new IllegalArgumentException("downSamplingScale out of range (downSamplingScale > 0)");
+
+        mDownSamplingScales[level] = downSamplingScale;
+        mMaxRates[level] = maxRate;
+    }
+
+    /**
+     * 设置等级变化监听
+     *
+     * @param listener
+     */
+    public synchronized void setOnLevelChangeListener(OnLevelChangeListener listener)
+    {
+        mOnLevelChangeListener = listener;
+    }
+
+    /**
+     * 立即重新读取设备状态
+     */
+    public void refresh()
+    {
+        synchronized (this)
+        {
+            mLastCheckTime = -1;
+        }
+        getLevel();
+    }
+
+    /**
+     * 返回当前的等级
+     *
+     * @return
+     */
+    public int getLevel()
+    {
+        final OnLevelChangeListener listener;
+        final int oldLevel;
+        final int newLevel;
+        final int thermalStatus;
+        final boolean powerSaveMode;
+
+        synchronized (this)
+        {
+            final long now = SystemClock.uptimeMillis();
+            if (mLastCheckTime >= 0 && now - mLastCheckTime < STATE_CHECK_INTERVAL)
+                return mLevel;
+
+            mLastCheckTime = now;
+            mThermalStatus = mEnabled ? mProvider.getThermalStatus() : DeviceStateProvider.THERMAL_STATUS_NONE;
+            mPowerSaveMode = mEnabled && mProvider.isPowerSaveMode();
+
+            int level = LEVEL_NORMAL;
+            if (mThermalStatus >= mMinimalThermalStatus)
+                level = LEVEL_MINIMAL;
+            else if (mThermalStatus >= mReducedThermalStatus)
+                level = LEVEL_REDUCED;
+
+            if (mPowerSaveMode)
+                level = Math.max(level, mPowerSaveLevel);
+
+            if (level == mLevel)
+                return level;
+
+            oldLevel = mLevel;
+            newLevel = level;
+            thermalStatus = mThermalStatus;
+            powerSaveMode = mPowerSaveMode;
+            listener = mOnLevelChangeListener;
+            mLevel = level;
+        }
+
+        if (listener != null)
+            listener.onLevelChanged(oldLevel, newLevel, thermalStatus, powerSaveMode);
+        return newLevel;
+    }
+
+    /**
+     * 返回当前等级的压缩倍数的放大倍数
+     *
+     * @return
+     */
+    public int getDownSamplingScale()
+    {
+        final int level = getLevel();
+        synchronized (this)
+        {
+            return mDownSamplingScales[level];
+        }
+    }
+
+    /**
+     * 按照当前等级调整模糊参数
+     *
+     * @param options
+     * @return
+     */
+    public BlurOptions adjustOptions(BlurOptions options)
+    {
+        final int scale = getDownSamplingScale();
+        if (scale == 1)
+            return options;
+        return options.withDownSampling(options.getDownSampling() * scale);
+    }
+
+    /**
+     * 按照当前等级调整每秒最多模糊的次数
+     *
+     * @param maxRate 设置的次数，小于等于0-不限制
+     * @return 小于等于0-不限制
+     */
+    public int adjustMaxRate(int maxRate)
+    {
+        final int level = getLevel();
+        final int limit;
+        synchronized (this)
+        {
+            limit = mMaxRates[level];
+        }
+
+        if (limit <= 0)
+            return maxRate;
+        if (maxRate <= 0)
+            return limit;
+        return Math.min(maxRate, limit);
+    }
+
+    private static void checkLevel(int level)
+    {
+        if (level < LEVEL_NORMAL || level > LEVEL_MINIMAL)
+            throw new IllegalArgumentException("level out of range (" + LEVEL_NORMAL + " <= level <= " + LEVEL_MINIMAL + ")");
+    }
+
+    public interface OnLevelChangeListener
+    {
+        /**
+         * 等级变化，在读取设备状态的线程回调
+         *
+         * @param oldLevel      原来的等级
+         * @param newLevel      新的等级
+         * @param thermalStatus 发热状态
+         * @param powerSaveMode 是否处于省电模式
+         */
+        void onLevelChanged(int oldLevel, int newLevel, int thermalStatus, boolean powerSaveMode);
+    }
+}
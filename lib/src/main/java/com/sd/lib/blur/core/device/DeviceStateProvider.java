@@ -0,0 +1,32 @@
+package com.sd.lib.blur.core.device;
+
+/**
+ * 提供设备的发热和省电状态
+ */
+public interface DeviceStateProvider
+{
+    /**
+     * 发热状态，和PowerManager.THERMAL_STATUS_XXX的值一致
+     */
+    int THERMAL_STATUS_NONE = 0;
+    int THERMAL_STATUS_LIGHT = 1;
+    int THERMAL_STATUS_MODERATE = 2;
+    int THERMAL_STATUS_SEVERE = 3;
+    int THERMAL_STATUS_CRITICAL = 4;
+    int THERMAL_STATUS_EMERGENCY = 5;
+    int THERMAL_STATUS_SHUTDOWN = 6;
+
+    /**
+     * 返回当前的发热状态
+     *
+     * @return {@link #THERMAL_STATUS_NONE}等
+     */
+    int getThermalStatus();
+
+    /**
+     * 是否处于省电模式
+     *
+     * @return
+     */
+    boolean isPowerSaveMode();
+}
@@ -0,0 +1,31 @@
+package com.sd.lib.blur.core.device;
+
+import android.content.Context;
+
+public final class DeviceStateProviderFactory
+{
+    private DeviceStateProviderFactory()
+    {
+    }
+
+    /**
+     * 从系统读取设备状态的provider
+     *
+     * @param context
+     * @return
+     */
+    public static DeviceStateProvider create(Context context)
+    {
+        return new SystemDeviceStateProvider(context);
+    }
+
+    /**
+     * 可以手动设置状态的provider
+     *
+     * @return
+     */
+    public static FakeDeviceStateProvider createFake()
+    {
+        return new FakeDeviceStateProvider();
+    }
+}
@@ -0,0 +1,42 @@
+package com.sd.lib.blur.core.device;
+
+/**
+ * 可以手动设置状态的{@link DeviceStateProvider}，用于测试
+ */
+public class FakeDeviceStateProvider implements DeviceStateProvider
+{
+    private volatile int mThermalStatus = THERMAL_STATUS_NONE;
+    private volatile boolean mPowerSaveMode;
+
+    /**
+     * 设置发热状态
+     *
+     * @param thermalStatus {@link #THERMAL_STATUS_NONE}等
+     */
+    public void setThermalStatus(int thermalStatus)
+    {
+        mThermalStatus = thermalStatus;
+    }
+
+    /**
+     * 设置是否处于省电模式
+     *
+     * @param powerSaveMode
+     */
+    public void setPowerSaveMode(boolean powerSaveMode)
+    {
+        mPowerSaveMode = powerSaveMode;
+    }
+
+    @Override
+    public int getThermalStatus()
+    {
+        return mThermalStatus;
+    }
+
+    @Override
+    public boolean isPowerSaveMode()
+    {
+        return mPowerSaveMode;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sd.lib.blur.core.device;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+
+import java.lang.reflect.Method;
+
+/**
+ * 从系统读取设备状态，发热状态需要API 29及以上，低版本返回{@link #THERMAL_STATUS_NONE}
+ */
+class SystemDeviceStateProvider implements DeviceStateProvider
+{
+    private final PowerManager mPowerManager;
+    private Method mThermalStatusMethod;
+    private boolean mThermalStatusUnsupported;
+
+    public SystemDeviceStateProvider(Context context)
+    {
+        mPowerManager = (PowerManager) context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+    }
+
+    @Override
+    public int getThermalStatus()
+    {
+        if (mPowerManager == null || mThermalStatusUnsupported || Build.VERSION.SDK_INT < 29)
+            return THERMAL_STATUS_NONE;
+
+        try
+        {
+            // 编译版本低于29，通过反射调用PowerManager.getCurrentThermalStatus()
+            if (mThermalStatusMethod == null)
+                mThermalStatusMethod = PowerManager.class.getMethod("getCurrentThermalStatus");
+
+            return (Integer) mThermalStatusMethod.invoke(mPowerManager);
+        } catch (Exception e)
+        {
+            e.printStackTrace();
+            mThermalStatusUnsupported = true;
+            return THERMAL_STATUS_NONE;
+        }
+    }
+
+    @Override
+    public boolean isPowerSaveMode()
+    {
+        if (mPowerManager == null || Build.VERSION.SDK_INT < 21)
+            return false;
+
+        return mPowerManager.isPowerSaveMode();
+    }
+}
@@ -0,0 +1,271 @@
+package com.sd.lib.blur.core.memory;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 统计进程内模糊相关的内存，包括{@link BitmapPoolFactory#getDefault()}和注册的{@link MemoryHolder}
+ * <p>
+ * 1. 超出上限的时候先清理池，再释放没有在使用的内存<br>
+ * 2. 超过一段时间没有模糊的时候释放没有在使用的内存<br>
+ * 3. 系统内存紧张的时候按照程度逐步释放
+ */
+public final class BlurMemory
+{
+    /**
+     * 释放没有在使用的内存
+     */
+    public static final int TRIM_LEVEL_UNUSED = 1;
+    /**
+     * 界面不可见，可以释放正在显示的结果，需要的时候重新模糊
+     */
+    public static final int TRIM_LEVEL_HIDDEN = 2;
+
+    private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    private static final long DEFAULT_IDLE_TIMEOUT = 30 * 1000;
+
+    private static final Map<MemoryHolder, Boolean> HOLDERS = new WeakHashMap<>();
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static volatile long sMaxBytes = DEFAULT_MAX_BYTES;
+    private static volatile long sIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private static boolean sInstalled;
+
+    private BlurMemory()
+    {
+    }
+
+    /**
+     * 监听系统内存紧张的回调，重复调用只会监听一次
+     *
+     * @param context
+     */
+    public static synchronized void install(Context context)
+    {
+        if (sInstalled)
+            return;
+
+        sInstalled = true;
+        context.getApplicationContext().registerComponentCallbacks(COMPONENT_CALLBACKS);
+    }
+
+    /**
+     * 设置内存上限
+     *
+     * @param maxBytes 字节数，小于等于0-不限制
+     */
+    public static void setMaxBytes(long maxBytes)
+    {
+        sMaxBytes = maxBytes;
+        MAIN_HANDLER.post(CHECK_BUDGET_RUNNABLE);
+    }
+
+    public static long getMaxBytes()
+    {
+        return sMaxBytes;
+    }
+
+    /**
+     * 设置超过多久没有模糊的时候释放没有在使用的内存
+     *
+     * @param timeout 毫秒，小于等于0-不释放
+     */
+    public static void setIdleTimeout(long timeout)
+    {
+        sIdleTimeout = timeout;
+        MAIN_HANDLER.removeCallbacks(IDLE_RUNNABLE);
+    }
+
+    public static long getIdleTimeout()
+    {
+        return sIdleTimeout;
+    }
+
+    /**
+     * 注册，只保存弱引用
+     *
+     * @param holder
+     */
+    public static void register(MemoryHolder holder)
+    {
+        if (holder == null)
+            return;
+
+        synchronized (HOLDERS)
+        {
+            HOLDERS.put(holder, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 取消注册
+     *
+     * @param holder
+     */
+    public static void unregister(MemoryHolder holder)
+    {
+        if (holder == null)
+            return;
+
+        synchronized (HOLDERS)
+        {
+            HOLDERS.remove(holder);
+        }
+    }
+
+    /**
+     * 通知进行了一次模糊，可以在任意线程调用，会重新计算空闲时间并检查是否超出上限
+     */
+    public static void notifyUsed()
+    {
+        MAIN_HANDLER.removeCallbacks(CHECK_BUDGET_RUNNABLE);
+        MAIN_HANDLER.post(CHECK_BUDGET_RUNNABLE);
+
+        MAIN_HANDLER.removeCallbacks(IDLE_RUNNABLE);
+        final long timeout = sIdleTimeout;
+        if (timeout > 0)
+            MAIN_HANDLER.postDelayed(IDLE_RUNNABLE, timeout);
+    }
+
+    /**
+     * 通知分配内存失败，可以在任意线程调用，会在主线程释放没有在使用的内存
+     */
+    public static void notifyLowMemory()
+    {
+        MAIN_HANDLER.removeCallbacks(LOW_MEMORY_RUNNABLE);
+        MAIN_HANDLER.post(LOW_MEMORY_RUNNABLE);
+    }
+
+    /**
+     * 返回统计的字节数
+     *
+     * @return
+     */
+    public static long getHeldBytes()
+    {
+        long bytes = getPool().getSize();
+        for (MemoryHolder item : getHolders())
+        {
+            bytes += item.getHeldBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 释放内存，需要在主线程调用
+     *
+     * @param level {@link #TRIM_LEVEL_UNUSED}或者{@link #TRIM_LEVEL_HIDDEN}
+     */
+    public static void trimMemory(int level)
+    {
+        // 先让持有者释放，它们释放的Bitmap可能会放回池中，最后再清理池
+        for (MemoryHolder item : getHolders())
+        {
+            item.trimMemory(level);
+        }
+        getPool().clear();
+    }
+
+    private static void checkBudget()
+    {
+        final long maxBytes = sMaxBytes;
+        if (maxBytes <= 0)
+            return;
+
+        long over = getHeldBytes() - maxBytes;
+        if (over <= 0)
+            return;
+
+        final BitmapPool pool = getPool();
+        pool.trimToSize((int) Math.max(0, pool.getSize() - over));
+
+        over = getHeldBytes() - maxBytes;
+        if (over > 0)
+            trimMemory(TRIM_LEVEL_UNUSED);
+    }
+
+    private static BitmapPool getPool()
+    {
+        return BitmapPoolFactory.getDefault();
+    }
+
+    private static List<MemoryHolder> getHolders()
+    {
+        synchronized (HOLDERS)
+        {
+            return new ArrayList<>(HOLDERS.keySet());
+        }
+    }
+
+    private static final Runnable CHECK_BUDGET_RUNNABLE = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            checkBudget();
+        }
+    };
+
+    private static final Runnable IDLE_RUNNABLE = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            trimMemory(TRIM_LEVEL_UNUSED);
+        }
+    };
+
+    private static final Runnable LOW_MEMORY_RUNNABLE = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            trimMemory(TRIM_LEVEL_UNUSED);
+        }
+    };
+
+    private static final ComponentCallbacks2 COMPONENT_CALLBACKS = new ComponentCallbacks2()
+    {
+        @Override
+        public void onTrimMemory(int level)
+        {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+            {
+                trimMemory(TRIM_LEVEL_HIDDEN);
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+            {
+                trimMemory(TRIM_LEVEL_UNUSED);
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+            {
+                final BitmapPool pool = getPool();
+                pool.trimToSize(pool.getSize() / 4);
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+            {
+                final BitmapPool pool = getPool();
+                pool.trimToSize(pool.getSize() / 2);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig)
+        {
+        }
+
+        @Override
+        public void onLowMemory()
+        {
+            trimMemory(TRIM_LEVEL_HIDDEN);
+        }
+    };
+}
@@ -0,0 +1,21 @@
+package com.sd.lib.blur.core.memory;
+
+/**
+ * 持有模糊相关内存的对象，注册到{@link BlurMemory}后参与统计和释放
+ */
+public interface MemoryHolder
+{
+    /**
+     * 返回持有的字节数
+     *
+     * @return
+     */
+    long getHeldBytes();
+
+    /**
+     * 释放内存，在主线程调用，正在使用的内存不能释放
+     *
+     * @param level {@link BlurMemory#TRIM_LEVEL_UNUSED}或者{@link BlurMemory#TRIM_LEVEL_HIDDEN}
+     */
+    void trimMemory(int level);
+}
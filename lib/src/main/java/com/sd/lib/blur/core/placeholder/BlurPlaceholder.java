@@ -0,0 +1,343 @@
+package com.sd.lib.blur.core.placeholder;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.source.BlurSource;
+import com.sd.lib.blur.core.source.SampledSource;
+
+/**
+ * 把图片编码为很短的字符串，只保留低频的余弦分量，解码之后看起来和模糊的结果相似，可以在真正的模糊结果出来之前显示
+ * <p>
+ * 字符串的格式和BlurHash一致，可以和服务端的BlurHash实现互相编码解码
+ */
+public final class BlurPlaceholder
+{
+    /**
+     * 编码之前把源压缩到这个边长以内，低频分量不需要更多的像素
+     */
+    public static final int ENCODE_SIZE = 64;
+    /**
+     * 每个方向最多的分量数量
+     */
+    public static final int MAX_COMPONENTS = 9;
+
+    private static final String CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+
+    static
+    {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++)
+        {
+            final double value = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    private BlurPlaceholder()
+    {
+    }
+
+    /**
+     * 把源压缩到{@link #ENCODE_SIZE}以内再编码
+     *
+     * @param source
+     * @param componentsX 水平方向的分量数量[1-9]
+     * @param componentsY 垂直方向的分量数量[1-9]
+     * @return null-源的宽高为0
+     */
+    public static String encode(BlurSource source, int componentsX, int componentsY)
+    {
+        if (source == null)
+            throw new IllegalArgumentException("source is null");
+        checkComponents(componentsX, componentsY);
+
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int downSampling = Math.max(1, (Math.max(width, height) + ENCODE_SIZE - 1) / ENCODE_SIZE);
+
+        final SimpleConfig config = new SimpleConfig();
+        try
+        {
+            if (!config.init(width, height, downSampling))
+                return null;
+
+            config.getBitmapInput().eraseColor(Color.TRANSPARENT);
+            if (source instanceof SampledSource)
+                ((SampledSource) source).prepare(downSampling);
+            try
+            {
+                SimpleConfig.drawSource(source, config.getCanvas(), config.getDrawRegion());
+            } finally
+            {
+                if (source instanceof SampledSource)
+                    ((SampledSource) source).release();
+            }
+
+            return encode(config.getBitmapInput(), componentsX, componentsY);
+        } finally
+        {
+            config.recycle();
+        }
+    }
+
+    /**
+     * 编码Bitmap的所有像素，Bitmap比较大的时候应该先压缩，忽略透明度
+     *
+     * @param bitmap
+     * @param componentsX 水平方向的分量数量[1-9]
+     * @param componentsY 垂直方向的分量数量[1-9]
+     * @return
+     */
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY)
+    {
+        if (bitmap == null)
+            throw new IllegalArgumentException("bitmap is null");
+        checkComponents(componentsX, componentsY);
+
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        final int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        final float[] linear = new float[pixels.length * 3];
+        for (int i = 0; i < pixels.length; i++)
+        {
+            final int color = pixels[i];
+            linear[i * 3] = SRGB_TO_LINEAR[(color >> 16) & 0xff];
+            linear[i * 3 + 1] = SRGB_TO_LINEAR[(color >> 8) & 0xff];
+            linear[i * 3 + 2] = SRGB_TO_LINEAR[color & 0xff];
+        }
+
+        final float[][] cosX = getCosTable(componentsX, width);
+        final float[][] cosY = getCosTable(componentsY, height);
+
+        final int count = componentsX * componentsY;
+        final float[] factors = new float[count * 3];
+        for (int j = 0; j < componentsY; j++)
+        {
+            for (int i = 0; i < componentsX; i++)
+            {
+                float r = 0;
+                float g = 0;
+                float b = 0;
+                for (int y = 0; y < height; y++)
+                {
+                    final float basisY = cosY[j][y];
+                    int index = y * width * 3;
+                    for (int x = 0; x < width; x++)
+                    {
+                        final float basis = cosX[i][x] * basisY;
+                        r += basis * linear[index];
+                        g += basis * linear[index + 1];
+                        b += basis * linear[index + 2];
+                        index += 3;
+                    }
+                }
+
+                final float scale = (i == 0 && j == 0 ? 1 : 2) / (float) (width * height);
+                final int factor = (j * componentsX + i) * 3;
+                factors[factor] = r * scale;
+                factors[factor + 1] = g * scale;
+                factors[factor + 2] = b * scale;
+            }
+        }
+
+        final StringBuilder builder = new StringBuilder(6 + (count - 1) * 2);
+        encode83(builder, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        float maxValue = 1;
+        if (count > 1)
+        {
+            float actualMax = 0;
+            for (int i = 3; i < factors.length; i++)
+            {
+                actualMax = Math.max(actualMax, Math.abs(factors[i]));
+            }
+
+            final int quantisedMax = Math.max(0, Math.min(82, (int) Math.floor(actualMax * 166 - 0.5)));
+            maxValue = (quantisedMax + 1) / 166f;
+            encode83(builder, quantisedMax, 1);
+        } else
+        {
+            encode83(builder, 0, 1);
+        }
+
+        encode83(builder, (linearToSRGB(factors[0]) << 16) | (linearToSRGB(factors[1]) << 8) | linearToSRGB(factors[2]), 4);
+
+        for (int i = 1; i < count; i++)
+        {
+            final int quantR = quantiseAC(factors[i * 3], maxValue);
+            final int quantG = quantiseAC(factors[i * 3 + 1], maxValue);
+            final int quantB = quantiseAC(factors[i * 3 + 2], maxValue);
+            encode83(builder, quantR * 19 * 19 + quantG * 19 + quantB, 2);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * {@link #decode(String, int, int, float)}，不增强对比度
+     */
+    public static Bitmap decode(String hash, int width, int height)
+    {
+        return decode(hash, width, height, 1);
+    }
+
+    /**
+     * 解码为Bitmap，宽高32左右就足够，显示的时候拉伸
+     *
+     * @param hash
+     * @param width
+     * @param height
+     * @param punch  对比度，大于1的时候颜色变化更明显
+     * @return
+     */
+    public static Bitmap decode(String hash, int width, int height, float punch)
+    {
+        if (!isValid(hash))
+            throw new IllegalArgumentException("invalid hash: " + hash);
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("width and height must be > 0");
+
+        final int sizeFlag = decode83(hash, 0, 1);
+        final int componentsX = sizeFlag % 9 + 1;
+        final int componentsY = sizeFlag / 9 + 1;
+        final float maxValue = (decode83(hash, 1, 2) + 1) / 166f * punch;
+
+        final int count = componentsX * componentsY;
+        final float[] colors = new float[count * 3];
+
+        final int dc = decode83(hash, 2, 6);
+        colors[0] = SRGB_TO_LINEAR[(dc >> 16) & 0xff];
+        colors[1] = SRGB_TO_LINEAR[(dc >> 8) & 0xff];
+        colors[2] = SRGB_TO_LINEAR[dc & 0xff];
+
+        for (int i = 1; i < count; i++)
+        {
+            final int ac = decode83(hash, 4 + i * 2, 6 + i * 2);
+            colors[i * 3] = signPow(((ac / (19 * 19)) - 9) / 9f, 2) * maxValue;
+            colors[i * 3 + 1] = signPow(((ac / 19) % 19 - 9) / 9f, 2) * maxValue;
+            colors[i * 3 + 2] = signPow((ac % 19 - 9) / 9f, 2) * maxValue;
+        }
+
+        final float[][] cosX = getCosTable(componentsX, width);
+        final float[][] cosY = getCosTable(componentsY, height);
+
+        final int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                float r = 0;
+                float g = 0;
+                float b = 0;
+                for (int j = 0; j < componentsY; j++)
+                {
+                    final float basisY = cosY[j][y];
+                    for (int i = 0; i < componentsX; i++)
+                    {
+                        final float basis = cosX[i][x] * basisY;
+                        final int color = (j * componentsX + i) * 3;
+                        r += colors[color] * basis;
+                        g += colors[color + 1] * basis;
+                        b += colors[color + 2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xff000000 | (linearToSRGB(r) << 16) | (linearToSRGB(g) << 8) | linearToSRGB(b);
+            }
+        }
+
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        return bitmap;
+    }
+
+    /**
+     * 检查字符串是否是合法的编码结果
+     *
+     * @param hash
+     * @return
+     */
+    public static boolean isValid(String hash)
+    {
+        if (hash == null || hash.length() < 6)
+            return false;
+
+        for (int i = 0; i < hash.length(); i++)
+        {
+            if (CHARACTERS.indexOf(hash.charAt(i)) < 0)
+                return false;
+        }
+
+        final int sizeFlag = decode83(hash, 0, 1);
+        final int componentsX = sizeFlag % 9 + 1;
+        final int componentsY = sizeFlag / 9 + 1;
+        return hash.length() == 4 + 2 * componentsX * componentsY;
+    }
+
+    private static void checkComponents(int componentsX, int componentsY)
+    {
+        if (componentsX < 1 || componentsX > MAX_COMPONENTS || componentsY < 1 || componentsY > MAX_COMPONENTS)
+            throw new IllegalArgumentException("components out of range [1-" + MAX_COMPONENTS + "]");
+    }
+
+    /**
+     * 返回每个分量在每个位置的余弦值
+     */
+    private static float[][] getCosTable(int components, int size)
+    {
+        final float[][] table = new float[components][size];
+        for (int i = 0; i < components; i++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                table[i][x] = (float) Math.cos(Math.PI * i * x / size);
+            }
+        }
+        return table;
+    }
+
+    private static int quantiseAC(float value, float maxValue)
+    {
+        return Math.max(0, Math.min(18, (int) Math.floor(signPow(value / maxValue, 0.5f) * 9 + 9.5)));
+    }
+
+    private static float signPow(float value, float exp)
+    {
+        return Math.copySign((float) Math.pow(Math.abs(value), exp), value);
+    }
+
+    private static int linearToSRGB(float value)
+    {
+        final float v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308f)
+            return (int) (v * 12.92f * 255 + 0.5f);
+        return (int) ((1.055f * Math.pow(v, 1 / 2.4) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static void encode83(StringBuilder builder, int value, int length)
+    {
+        for (int i = 1; i <= length; i++)
+        {
+            int divisor = 1;
+            for (int k = 0; k < length - i; k++)
+            {
+                divisor *= 83;
+            }
+            builder.append(CHARACTERS.charAt((value / divisor) % 83));
+        }
+    }
+
+    private static int decode83(String hash, int start, int end)
+    {
+        int value = 0;
+        for (int i = start; i < end; i++)
+        {
+            value = value * 83 + CHARACTERS.indexOf(hash.charAt(i));
+        }
+        return value;
+    }
+}
@@ -0,0 +1,128 @@
+package com.sd.lib.blur.core.plan;
+
+import android.content.Context;
+
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.strategy.BlurStrategy;
+import com.sd.lib.blur.core.strategy.BlurStrategyFactory;
+
+/**
+ * {@link BlurPlanner}选择的模糊参数，不可变对象
+ */
+public final class BlurPlan
+{
+    private final float mSigma;
+    private final int mDownSampling;
+    private final int mRadius;
+    private final int mKernel;
+    private final long mPixels;
+    private final float mCost;
+
+    BlurPlan(float sigma, int downSampling, int radius, int kernel, long pixels, float cost)
+    {
+        mSigma = sigma;
+        mDownSampling = downSampling;
+        mRadius = radius;
+        mKernel = kernel;
+        mPixels = pixels;
+        mCost = cost;
+    }
+
+    /**
+     * 按照这个参数模糊的时候，在源的坐标系中预计的标准差
+     *
+     * @return
+     */
+    public float getSigma()
+    {
+        return mSigma;
+    }
+
+    /**
+     * 压缩倍数
+     *
+     * @return
+     */
+    public int getDownSampling()
+    {
+        return mDownSampling;
+    }
+
+    /**
+     * 模糊半径
+     *
+     * @return
+     */
+    public int getRadius()
+    {
+        return mRadius;
+    }
+
+    /**
+     * 模糊算法，{@link BlurPlanner#KERNEL_DEFAULT}或者{@link BlurPlanner#KERNEL_BOX}
+     *
+     * @return
+     */
+    public int getKernel()
+    {
+        return mKernel;
+    }
+
+    /**
+     * 压缩后需要模糊的像素数量
+     *
+     * @return
+     */
+    public long getPixels()
+    {
+        return mPixels;
+    }
+
+    /**
+     * 预估的耗时，相对值，只用来比较
+     *
+     * @return
+     */
+    public float getCost()
+    {
+        return mCost;
+    }
+
+    /**
+     * 把压缩倍数和模糊半径设置到参数中
+     *
+     * @param options
+     * @return
+     */
+    public BlurOptions applyTo(BlurOptions options)
+    {
+        if (options == null)
+            throw new IllegalArgumentException("options is null");
+        return options.withDownSampling(mDownSampling).withRadius(mRadius);
+    }
+
+    /**
+     * 创建对应的模糊策略
+     *
+     * @param context
+     * @return
+     */
+    public BlurStrategy createStrategy(Context context)
+    {
+        if (mKernel == BlurPlanner.KERNEL_BOX)
+            return BlurStrategyFactory.createBox();
+        return BlurStrategyFactory.create(context);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BlurPlan{sigma=" + mSigma
+                + ", downSampling=" + mDownSampling
+                + ", radius=" + mRadius
+                + ", kernel=" + mKernel
+                + ", pixels=" + mPixels
+                + ", cost=" + mCost
+                + "}";
+    }
+}
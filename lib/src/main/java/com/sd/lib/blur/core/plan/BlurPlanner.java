@@ -0,0 +1,167 @@
+package com.sd.lib.blur.core.plan;
+
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.strategy.BlurStrategy;
+
+/**
+ * 根据想要的模糊程度选择耗时最少的压缩倍数、模糊半径和模糊算法
+ * <p>
+ * 压缩本身就有模糊的效果：按照区域平均缩小再双线性放大，相当于在源的坐标系中标准差为0.5倍压缩倍数的模糊，
+ * 剩下的部分由模糊算法在压缩后的Bitmap中完成。压缩倍数太大的时候模糊算法的半径很小，会看到块状的痕迹，
+ * 所以要求模糊算法的标准差不小于{@link #MIN_KERNEL_SIGMA}
+ * <p>
+ * 耗时是按照经验估计的相对值，只用来比较不同的参数
+ */
+public final class BlurPlanner
+{
+    /**
+     * {@link com.sd.lib.blur.core.strategy.BlurStrategyFactory#create(android.content.Context)}，
+     * 半径不超过{@link BlurStrategy#MAX_KERNEL_RADIUS}
+     */
+    public static final int KERNEL_DEFAULT = 0;
+    /**
+     * {@link com.sd.lib.blur.core.strategy.BlurStrategyFactory#createBox()}
+     */
+    public static final int KERNEL_BOX = 1;
+
+    /**
+     * 压缩和放大在源的坐标系中产生的标准差和压缩倍数的比例
+     */
+    private static final float DOWN_SAMPLING_SIGMA = 0.5f;
+    /**
+     * 压缩之后模糊算法至少要有的标准差
+     */
+    private static final float MIN_KERNEL_SIGMA = 1.4f;
+    /**
+     * 压缩后的宽高至少要有的像素
+     */
+    private static final int MIN_SCALED_SIZE = 16;
+
+    private static final int[] DOWN_SAMPLINGS = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32};
+
+    /**
+     * 每个像素绘制到压缩后的Bitmap和读写的耗时
+     */
+    private static final float COST_DRAW = 2;
+    /**
+     * 默认算法每个像素的耗时，和半径成正比
+     */
+    private static final float COST_DEFAULT_BASE = 1;
+    private static final float COST_DEFAULT_PER_RADIUS = 0.25f;
+    /**
+     * 盒子模糊每个像素的耗时，和半径无关
+     */
+    private static final float COST_BOX = 6;
+
+    private BlurPlanner()
+    {
+    }
+
+    /**
+     * {@link #plan(float, int, int, long)}，不限制像素数量
+     */
+    public static BlurPlan plan(float sigma, int width, int height)
+    {
+        return plan(sigma, width, height, 0);
+    }
+
+    /**
+     * 选择耗时最少的参数
+     *
+     * @param sigma       想要的模糊程度，源的坐标系中的标准差
+     * @param width       要模糊的宽
+     * @param height      要模糊的高
+     * @param pixelBudget 压缩后最多模糊多少像素，小于等于0-不限制，
+     *                    没有参数能同时满足模糊程度和像素数量的时候优先满足像素数量
+     * @return
+     */
+    public static BlurPlan plan(float sigma, int width, int height, long pixelBudget)
+    {
+        if (sigma <= 0)
+            throw new IllegalArgumentException("sigma out of range (sigma > 0)");
+
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("width and height must be > 0");
+
+        BlurPlan best = null;
+        BlurPlan fallback = null;
+        for (int downSampling : DOWN_SAMPLINGS)
+        {
+            final int scaledWidth = width / downSampling;
+            final int scaledHeight = height / downSampling;
+            if (downSampling > 1 && (scaledWidth < MIN_SCALED_SIZE || scaledHeight < MIN_SCALED_SIZE))
+                break;
+
+            final long pixels = (long) scaledWidth * scaledHeight;
+            final boolean inBudget = pixelBudget <= 0 || pixels <= pixelBudget;
+
+            final float kernelSigma = getKernelSigma(sigma, downSampling);
+            if (downSampling > 1 && kernelSigma < MIN_KERNEL_SIGMA)
+            {
+                // 模糊程度不够的时候压缩倍数不能再大了，只在预算不够的时候使用
+                if (fallback == null && inBudget)
+                    fallback = createPlan(downSampling, 1, pixels);
+                continue;
+            }
+
+            if (!inBudget)
+                continue;
+
+            final int radius = Math.min(BlurOptions.MAX_RADIUS, Math.max(1, Math.round((kernelSigma - 0.6f) / 0.4f)));
+            final BlurPlan plan = createPlan(downSampling, radius, pixels);
+            if (best == null || plan.getCost() < best.getCost())
+                best = plan;
+        }
+
+        if (best != null)
+            return best;
+        if (fallback != null)
+            return fallback;
+
+        // 预算太小，使用最大的压缩倍数
+        int downSampling = 1;
+        for (int item : DOWN_SAMPLINGS)
+        {
+            if (item > 1 && (width / item < MIN_SCALED_SIZE || height / item < MIN_SCALED_SIZE))
+                break;
+            downSampling = item;
+        }
+        return createPlan(downSampling, 1, (long) (width / downSampling) * (height / downSampling));
+    }
+
+    /**
+     * 返回模糊算法在压缩后的Bitmap中需要的标准差
+     */
+    private static float getKernelSigma(float sigma, int downSampling)
+    {
+        if (downSampling == 1)
+            return sigma;
+
+        final float scaled = sigma / downSampling;
+        final float value = scaled * scaled - DOWN_SAMPLING_SIGMA * DOWN_SAMPLING_SIGMA;
+        return value <= 0 ? 0 : (float) Math.sqrt(value);
+    }
+
+    private static BlurPlan createPlan(int downSampling, int radius, long pixels)
+    {
+        final int kernel;
+        final float kernelCost;
+        final float costDefault = COST_DEFAULT_BASE + COST_DEFAULT_PER_RADIUS * radius;
+        if (radius <= BlurStrategy.MAX_KERNEL_RADIUS && costDefault <= COST_BOX)
+        {
+            kernel = KERNEL_DEFAULT;
+            kernelCost = costDefault;
+        } else
+        {
+            kernel = KERNEL_BOX;
+            kernelCost = COST_BOX;
+        }
+
+        // 实际得到的模糊程度
+        final float kernelSigma = (0.4f * radius + 0.6f) * downSampling;
+        final float downSamplingSigma = downSampling == 1 ? 0 : DOWN_SAMPLING_SIGMA * downSampling;
+        final float sigma = (float) Math.sqrt(kernelSigma * kernelSigma + downSamplingSigma * downSamplingSigma);
+
+        return new BlurPlan(sigma, downSampling, radius, kernel, pixels, pixels * (COST_DRAW + kernelCost));
+    }
+}
@@ -0,0 +1,56 @@
+package com.sd.lib.blur.core.pool;
+
+import android.graphics.Bitmap;
+
+public interface BitmapPool
+{
+    /**
+     * 获取一个指定宽高的Bitmap，池中没有可以复用的对象则新创建，返回的Bitmap内容未清空
+     *
+     * @param width
+     * @param height
+     * @param config
+     * @return
+     */
+    Bitmap get(int width, int height, Bitmap.Config config);
+
+    /**
+     * 把Bitmap放回池中，超出容量的部分会被回收
+     *
+     * @param bitmap
+     */
+    void put(Bitmap bitmap);
+
+    /**
+     * 返回池中Bitmap占用的字节数
+     *
+     * @return
+     */
+    int getSize();
+
+    /**
+     * 返回池的容量(字节)
+     *
+     * @return
+     */
+    int getMaxSize();
+
+    /**
+     * 回收池中的Bitmap，直到占用的字节数不大于size
+     *
+     * @param size
+     */
+    void trimToSize(int size);
+
+    /**
+     * 回收池中所有的Bitmap
+     */
+    void clear();
+
+    /**
+     * 返回当前线程调用{@link #get(int, int, Bitmap.Config)}的累计统计，两次的差值就是这段时间内的统计
+     *
+     * @return
+     */
+    PoolStats getThreadStats();
+}
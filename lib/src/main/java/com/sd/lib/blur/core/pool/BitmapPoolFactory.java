@@ -0,0 +1,32 @@
+package com.sd.lib.blur.core.pool;
+
+public final class BitmapPoolFactory
+{
+    /**
+     * 默认池的容量(字节)
+     */
+    private static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    private static BitmapPool sDefault;
+
+    private BitmapPoolFactory()
+    {
+    }
+
+    /**
+     * 返回进程内共享的池
+     *
+     * @return
+     */
+    public static synchronized BitmapPool getDefault()
+    {
+        if (sDefault == null)
+            sDefault = new LruBitmapPool(DEFAULT_MAX_SIZE);
+        return sDefault;
+    }
+
+    public static BitmapPool create(int maxSize)
+    {
+        return new LruBitmapPool(maxSize);
+    }
+}
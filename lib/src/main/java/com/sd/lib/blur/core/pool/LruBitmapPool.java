@@ -0,0 +1,110 @@
+package com.sd.lib.blur.core.pool;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+class LruBitmapPool implements BitmapPool
+{
+    private final int mMaxSize;
+    private final LinkedList<Bitmap> mList = new LinkedList<>();
+    private int mSize;
+
+    private final ThreadLocal<PoolStats> mThreadStats = new ThreadLocal<PoolStats>()
+    {
+        @Override
+        protected PoolStats initialValue()
+        {
+            return new PoolStats();
+        }
+    };
+
+    public LruBitmapPool(int maxSize)
+    {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize out of range (maxSize > 0)");
+        mMaxSize = maxSize;
+    }
+
+    @Override
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config)
+    {
+        final Iterator<Bitmap> it = mList.iterator();
+        while (it.hasNext())
+        {
+            final Bitmap item = it.next();
+            if (item.getWidth() == width && item.getHeight() == height && item.getConfig() == config)
+            {
+                it.remove();
+                mSize -= item.getByteCount();
+
+                if (item.isRecycled())
+                    continue;
+
+                mThreadStats.get().onHit(item.getByteCount());
+                return item;
+            }
+        }
+
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+        mThreadStats.get().onMiss(bitmap.getByteCount());
+        return bitmap;
+    }
+
+    @Override
+    public synchronized void put(Bitmap bitmap)
+    {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable())
+            return;
+
+        if (mList.contains(bitmap))
+            return;
+
+        final int byteCount = bitmap.getByteCount();
+        if (byteCount > mMaxSize)
+        {
+            bitmap.recycle();
+            return;
+        }
+
+        mList.addFirst(bitmap);
+        mSize += byteCount;
+        trimToSize(mMaxSize);
+    }
+
+    @Override
+    public synchronized int getSize()
+    {
+        return mSize;
+    }
+
+    @Override
+    public int getMaxSize()
+    {
+        return mMaxSize;
+    }
+
+    @Override
+    public synchronized void trimToSize(int size)
+    {
+        while (mSize > size && !mList.isEmpty())
+        {
+            final Bitmap item = mList.removeLast();
+            mSize -= item.getByteCount();
+            item.recycle();
+        }
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        trimToSize(0);
+    }
+
+    @Override
+    public PoolStats getThreadStats()
+    {
+        return new PoolStats(mThreadStats.get());
+    }
+}
@@ -0,0 +1,92 @@
+package com.sd.lib.blur.core.pool;
+
+/**
+ * {@link BitmapPool}的统计
+ */
+public final class PoolStats
+{
+    private int mHitCount;
+    private int mMissCount;
+    private long mReusedBytes;
+    private long mAllocatedBytes;
+
+    PoolStats()
+    {
+    }
+
+    PoolStats(PoolStats stats)
+    {
+        mHitCount = stats.mHitCount;
+        mMissCount = stats.mMissCount;
+        mReusedBytes = stats.mReusedBytes;
+        mAllocatedBytes = stats.mAllocatedBytes;
+    }
+
+    void onHit(int byteCount)
+    {
+        mHitCount++;
+        mReusedBytes += byteCount;
+    }
+
+    void onMiss(int byteCount)
+    {
+        mMissCount++;
+        mAllocatedBytes += byteCount;
+    }
+
+    /**
+     * 从池中复用的次数
+     *
+     * @return
+     */
+    public int getHitCount()
+    {
+        return mHitCount;
+    }
+
+    /**
+     * 池中没有可以复用的对象，新创建的次数
+     *
+     * @return
+     */
+    public int getMissCount()
+    {
+        return mMissCount;
+    }
+
+    /**
+     * 复用的字节数
+     *
+     * @return
+     */
+    public long getReusedBytes()
+    {
+        return mReusedBytes;
+    }
+
+    /**
+     * 新创建的字节数
+     *
+     * @return
+     */
+    public long getAllocatedBytes()
+    {
+        return mAllocatedBytes;
+    }
+
+    /**
+     * 返回和更早的统计之间的差值
+     *
+     * @param earlier
+     * @return
+     */
+    public PoolStats minus(PoolStats earlier)
+    {
+        final PoolStats result = new PoolStats(this);
+        result.mHitCount -= earlier.mHitCount;
+        result.mMissCount -= earlier.mMissCount;
+        result.mReusedBytes -= earlier.mReusedBytes;
+        result.mAllocatedBytes -= earlier.mAllocatedBytes;
+        return result;
+    }
+}
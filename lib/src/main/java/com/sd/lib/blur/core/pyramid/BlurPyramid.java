@@ -0,0 +1,466 @@
+package com.sd.lib.blur.core.pyramid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.sd.lib.blur.core.Blur;
+import com.sd.lib.blur.core.BlurExecutor;
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.source.BlurSource;
+import com.sd.lib.blur.core.source.CapturedSource;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 只捕获一次源，按照几个不同的半径模糊得到多个层级，中间的半径通过混合相邻的两个层级得到，不需要再模糊，
+ * 适合动画或者拖动改变模糊半径
+ * <p>
+ * 层级是捕获时候的内容，源的内容变化后需要重新创建
+ */
+public final class BlurPyramid
+{
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final int[] mRadii;
+    private final int mDownSampling;
+    private final Rect mRegion;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private Bitmap[] mLevels;
+
+    private BlurPyramid(int[] radii, Bitmap[] levels, int downSampling, Rect region)
+    {
+        mRadii = radii;
+        mLevels = levels;
+        mDownSampling = downSampling;
+        mRegion = region;
+    }
+
+    /**
+     * {@link #create(Blur, BlurSource, BlurOptions, int[])}，层级的半径为{@link #getDefaultRadii(int)}
+     */
+    public static BlurPyramid create(Blur blur, BlurSource source, BlurOptions options)
+    {
+        return create(blur, source, options, getDefaultRadii(options.getRadius()));
+    }
+
+    /**
+     * 在当前线程捕获源并模糊每个层级
+     *
+     * @param blur    用来模糊层级，不使用它的参数，模糊所有层级之后调用{@link Blur#destroy()}释放缓存
+     * @param source
+     * @param options 使用压缩倍数，颜色和区域，忽略半径
+     * @param radii   每个层级的半径，从小到大
+     * @return null-源的宽高无效或者模糊失败
+     */
+    public static BlurPyramid create(Blur blur, BlurSource source, BlurOptions options, int[] radii)
+    {
+        final Builder builder = capture(blur, source, options, radii);
+        if (builder == null)
+            return null;
+
+        try
+        {
+            return builder.build();
+        } finally
+        {
+            builder.release();
+        }
+    }
+
+    /**
+     * {@link #createAsync(Blur, BlurSource, BlurOptions, int[], Callback)}，层级的半径为{@link #getDefaultRadii(int)}
+     */
+    public static Future<?> createAsync(Blur blur, BlurSource source, BlurOptions options, Callback callback)
+    {
+        return createAsync(blur, source, options, getDefaultRadii(options.getRadius()), callback);
+    }
+
+    /**
+     * 在当前线程捕获源，在{@link BlurExecutor}中模糊每个层级，完成后在主线程回调
+     * <p>
+     * 取消返回的任务之后不会再回调，已经模糊的层级会被释放
+     *
+     * @param blur     {@link #create(Blur, BlurSource, BlurOptions, int[])}
+     * @param source   view源需要在主线程调用
+     * @param options  {@link #create(Blur, BlurSource, BlurOptions, int[])}
+     * @param radii    每个层级的半径，从小到大
+     * @param callback
+     * @return null-源的宽高无效，不会回调
+     */
+    public static Future<?> createAsync(Blur blur, BlurSource source, BlurOptions options, int[] radii, Callback callback)
+    {
+        if (callback == null)
+            throw new IllegalArgumentException("callback is null");
+
+        final Builder builder = capture(blur, source, options, radii);
+        if (builder == null)
+            return null;
+
+        final BuildTask task = new BuildTask(new BuildCallable(builder), callback);
+        BlurExecutor.getDefault().execute(task);
+        return task;
+    }
+
+    /**
+     * 按照最大的半径捕获源
+     *
+     * @return null-源的宽高无效
+     */
+    private static Builder capture(Blur blur, BlurSource source, BlurOptions options, int[] radii)
+    {
+        if (blur == null)
+            throw new IllegalArgumentException("blur is null");
+        if (source == null)
+            throw new IllegalArgumentException("source is null");
+        if (options == null)
+            throw new IllegalArgumentException("options is null");
+        checkRadii(radii);
+
+        // 按照最大的半径捕获，包含所有层级需要额外绘制的范围
+        final BlurOptions captureOptions = options.withRadius(radii[radii.length - 1]).withOutputSize(0, 0);
+        final CapturedSource captured = CapturedSource.capture(source, captureOptions);
+        if (captured == null)
+            return null;
+
+        // 内存不足的时候捕获的压缩倍数可能变大
+        final int downSampling = captured.getDownSampling();
+        final BlurOptions levelOptions = captureOptions.withDownSampling(downSampling).withKeepDownSamplingSize(true);
+
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final Rect region = options.getRegion() == null ? new Rect(0, 0, width, height) : options.getRegion();
+        return new Builder(blur, captured, levelOptions, radii.clone(), SimpleConfig.alignRegion(region, width, height, downSampling));
+    }
+
+    /**
+     * 持有捕获的源，模糊每个层级，可以在任意线程执行
+     */
+    private static final class Builder
+    {
+        private final Blur mBlur;
+        private final CapturedSource mCaptured;
+        private final BlurOptions mOptions;
+        private final int[] mRadii;
+        private final Rect mRegion;
+
+        public Builder(Blur blur, CapturedSource captured, BlurOptions options, int[] radii, Rect region)
+        {
+            mBlur = blur;
+            mCaptured = captured;
+            mOptions = options;
+            mRadii = radii;
+            mRegion = region;
+        }
+
+        public BlurPyramid build()
+        {
+            final Bitmap[] levels = new Bitmap[mRadii.length];
+            try
+            {
+                for (int i = 0; i < mRadii.length; i++)
+                {
+                    levels[i] = mBlur.blur(mCaptured, mOptions.withRadius(mRadii[i]));
+                    if (levels[i] == null)
+                    {
+                        BlurPyramid.release(levels);
+                        return null;
+                    }
+                }
+            } finally
+            {
+                mBlur.destroy();
+            }
+            return new BlurPyramid(mRadii, levels, mOptions.getDownSampling(), mRegion);
+        }
+
+        public void release()
+        {
+            mCaptured.release();
+        }
+    }
+
+    private static final class BuildCallable implements Callable<BlurPyramid>
+    {
+        private final Builder mBuilder;
+        /**
+         * 开始模糊或者取消的时候设置，保证捕获的源只被其中一方释放
+         */
+        private final AtomicBoolean mClaimed = new AtomicBoolean();
+        /**
+         * 在主线程取消，取消之后不再回调
+         */
+        private volatile boolean mCancelled;
+
+        public BuildCallable(Builder builder)
+        {
+            mBuilder = builder;
+        }
+
+        @Override
+        public BlurPyramid call() throws Exception
+        {
+            if (!mClaimed.compareAndSet(false, true))
+                return null;
+
+            final BlurPyramid pyramid;
+            try
+            {
+                pyramid = mBuilder.build();
+            } finally
+            {
+                mBuilder.release();
+            }
+
+            // 模糊的过程中被取消，结果不会再被取到
+            if (mCancelled && pyramid != null)
+            {
+                pyramid.release();
+                return null;
+            }
+            return pyramid;
+        }
+
+        public void onCancelled()
+        {
+            mCancelled = true;
+            if (mClaimed.compareAndSet(false, true))
+                mBuilder.release();
+        }
+    }
+
+    private static final class BuildTask extends FutureTask<BlurPyramid>
+    {
+        private final BuildCallable mCallable;
+        private final Callback mCallback;
+
+        public BuildTask(BuildCallable callable, Callback callback)
+        {
+            super(callable);
+            mCallable = callable;
+            mCallback = callback;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            mCallable.onCancelled();
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        protected void done()
+        {
+            if (isCancelled())
+                return;
+
+            BlurPyramid pyramid = null;
+            try
+            {
+                pyramid = get();
+            } catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            } catch (ExecutionException e)
+            {
+                e.printStackTrace();
+            }
+
+            final BlurPyramid result = pyramid;
+            MAIN_HANDLER.post(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    // 结果出来之后才被取消
+                    if (mCallable.mCancelled)
+                    {
+                        if (result != null)
+                            result.release();
+                        return;
+                    }
+                    mCallback.onCreated(result);
+                }
+            });
+        }
+    }
+
+    public interface Callback
+    {
+        /**
+         * 在主线程回调
+         *
+         * @param pyramid null-模糊失败
+         */
+        void onCreated(BlurPyramid pyramid);
+    }
+
+    /**
+     * 返回默认的层级半径：1，2，4，8...，最后一个是最大半径
+     *
+     * @param maxRadius
+     * @return
+     */
+    public static int[] getDefaultRadii(int maxRadius)
+    {
+        if (maxRadius <= 0 || maxRadius > BlurOptions.MAX_RADIUS)
+            throw new IllegalArgumentException("maxRadius out of range (0 < maxRadius <= " + BlurOptions.MAX_RADIUS + ")");
+
+        int count = 1;
+        for (int radius = 1; radius < maxRadius; radius *= 2)
+        {
+            count++;
+        }
+
+        final int[] radii = new int[count];
+        for (int i = 0; i < count - 1; i++)
+        {
+            radii[i] = 1 << i;
+        }
+        radii[count - 1] = maxRadius;
+        return radii;
+    }
+
+    private static void checkRadii(int[] radii)
+    {
+        if (radii == null || radii.length == 0)
+            throw new IllegalArgumentException("radii is empty");
+
+        for (int i = 0; i < radii.length; i++)
+        {
+            if (radii[i] <= 0 || radii[i] > BlurOptions.MAX_RADIUS)
+                throw new IllegalArgumentException("radius out of range (0 < radius <= " + BlurOptions.MAX_RADIUS + ")");
+            if (i > 0 && radii[i] <= radii[i - 1])
+                throw new IllegalArgumentException("radii must be in ascending order");
+        }
+    }
+
+    /**
+     * 返回每个层级的半径
+     *
+     * @return
+     */
+    public int[] getRadii()
+    {
+        return mRadii.clone();
+    }
+
+    /**
+     * 返回层级的压缩倍数
+     *
+     * @return
+     */
+    public int getDownSampling()
+    {
+        return mDownSampling;
+    }
+
+    /**
+     * 返回层级覆盖的源区域(源的坐标系)
+     *
+     * @return
+     */
+    public Rect getRegion()
+    {
+        return new Rect(mRegion);
+    }
+
+    /**
+     * 返回所有层级占用的字节数
+     *
+     * @return
+     */
+    public synchronized long getByteCount()
+    {
+        if (mLevels == null)
+            return 0;
+
+        long bytes = 0;
+        for (Bitmap item : mLevels)
+        {
+            bytes += item.getByteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * 按照源的坐标系绘制指定半径的模糊结果，半径在两个层级之间的时候按照比例混合这两个层级，
+     * 小于最小的层级的时候最小的层级按照比例透明，大于最大的层级的时候绘制最大的层级
+     *
+     * @param canvas
+     * @param radius
+     */
+    public synchronized void draw(Canvas canvas, float radius)
+    {
+        final Bitmap[] levels = mLevels;
+        if (levels == null || radius <= 0)
+            return;
+
+        canvas.save();
+        canvas.translate(mRegion.left, mRegion.top);
+        canvas.scale(mDownSampling, mDownSampling);
+
+        final int last = mRadii.length - 1;
+        if (radius < mRadii[0])
+        {
+            drawLevel(canvas, levels[0], radius / mRadii[0]);
+        } else if (radius >= mRadii[last])
+        {
+            drawLevel(canvas, levels[last], 1);
+        } else
+        {
+            int index = 0;
+            while (radius >= mRadii[index + 1])
+            {
+                index++;
+            }
+
+            final float fraction = (radius - mRadii[index]) / (mRadii[index + 1] - mRadii[index]);
+            drawLevel(canvas, levels[index], 1);
+            drawLevel(canvas, levels[index + 1], fraction);
+        }
+
+        canvas.restore();
+    }
+
+    private void drawLevel(Canvas canvas, Bitmap bitmap, float alpha)
+    {
+        final int value = Math.round(alpha * 255);
+        if (value <= 0)
+            return;
+
+        mPaint.setAlpha(value);
+        canvas.drawBitmap(bitmap, 0, 0, mPaint);
+    }
+
+    /**
+     * 把层级放回池中，调用后此对象不再可用
+     */
+    public synchronized void release()
+    {
+        if (mLevels != null)
+        {
+            release(mLevels);
+            mLevels = null;
+        }
+    }
+
+    private static void release(Bitmap[] levels)
+    {
+        for (Bitmap item : levels)
+        {
+            if (item != null)
+                BitmapPoolFactory.getDefault().put(item);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.sd.lib.blur.core.source;
 
-abstract class BaseSource<T> implements BlurSource
+abstract class BaseSource<T> implements RegionBlurSource
 {
     private final T mSource;
 
@@ -2,6 +2,7 @@ package com.sd.lib.blur.core.source;
 
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 
 class BitmapSource extends BaseSource<Bitmap>
 {
@@ -25,6 +26,23 @@ class BitmapSource extends BaseSource<Bitmap>
     @Override
     public void draw(Canvas canvas)
     {
-        canvas.drawBitmap(getSource(), 0, 0, null);
+        draw(canvas, null);
+    }
+
+    @Override
+    public void draw(Canvas canvas, Rect region)
+    {
+        final Bitmap bitmap = getSource();
+        if (region == null)
+        {
+            canvas.drawBitmap(bitmap, 0, 0, null);
+            return;
+        }
+
+        final Rect rect = new Rect(region);
+        if (!rect.intersect(0, 0, bitmap.getWidth(), bitmap.getHeight()))
+            return;
+
+        canvas.drawBitmap(bitmap, rect, rect, null);
     }
 }
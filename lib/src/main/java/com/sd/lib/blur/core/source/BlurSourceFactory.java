@@ -1,10 +1,19 @@
 package com.sd.lib.blur.core.source;
 
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.view.View;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 public final class BlurSourceFactory
 {
     private BlurSourceFactory()
@@ -28,4 +37,118 @@ public final class BlurSourceFactory
         else
             return new DrawableSource(drawable);
     }
+
+    /**
+     * 图片文件，模糊的时候按照压缩倍数采样解码
+     *
+     * @param path
+     * @return
+     */
+    public static BlurSource createFile(String path)
+    {
+        return newFileSource(path);
+    }
+
+    private static DecodeSource newFileSource(final String path)
+    {
+        if (path == null)
+            throw new IllegalArgumentException("path is null");
+
+        return new DecodeSource()
+        {
+            @Override
+            protected InputStream open() throws IOException
+            {
+                return new FileInputStream(path);
+            }
+        };
+    }
+
+    /**
+     * 图片uri，支持{@link ContentResolver#openInputStream(Uri)}支持的scheme，模糊的时候按照压缩倍数采样解码
+     *
+     * @param context
+     * @param uri
+     * @return
+     */
+    public static BlurSource create(Context context, Uri uri)
+    {
+        return newUriSource(context, uri);
+    }
+
+    private static DecodeSource newUriSource(Context context, final Uri uri)
+    {
+        if (uri == null)
+            throw new IllegalArgumentException("uri is null");
+
+        final ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        return new DecodeSource()
+        {
+            @Override
+            protected InputStream open() throws IOException
+            {
+                return resolver.openInputStream(uri);
+            }
+        };
+    }
+
+    /**
+     * assets中的图片，模糊的时候按照压缩倍数采样解码
+     *
+     * @param context
+     * @param path    assets中的路径
+     * @return
+     */
+    public static BlurSource createAsset(Context context, final String path)
+    {
+        if (path == null)
+            throw new IllegalArgumentException("path is null");
+
+        final AssetManager assets = context.getApplicationContext().getAssets();
+        return new DecodeSource()
+        {
+            @Override
+            protected InputStream open() throws IOException
+            {
+                return assets.open(path);
+            }
+        };
+    }
+
+    /**
+     * 图片资源，宽高按照屏幕密度缩放，和{@link Resources#getDrawable(int)}一致，模糊的时候按照压缩倍数采样解码
+     * <p>
+     * 只支持位图资源，其他类型的资源和.9图宽高为0
+     *
+     * @param context
+     * @param resId
+     * @return
+     */
+    public static BlurSource createResource(Context context, int resId)
+    {
+        return new ResourceSource(context.getApplicationContext().getResources(), resId);
+    }
+
+    /**
+     * JPEG图片文件，EXIF缩略图足够大的时候只解码缩略图，否则和{@link #createFile(String)}一样
+     *
+     * @param path
+     * @return
+     */
+    public static BlurSource createExifThumbnail(String path)
+    {
+        return new ExifThumbnailSource(newFileSource(path));
+    }
+
+    /**
+     * JPEG图片uri，EXIF缩略图足够大的时候只解码缩略图，否则和{@link #create(Context, Uri)}一样
+     *
+     * @param context
+     * @param uri
+     * @return
+     */
+    public static BlurSource createExifThumbnail(Context context, Uri uri)
+    {
+        return new ExifThumbnailSource(newUriSource(context, uri));
+    }
 }
@@ -0,0 +1,211 @@
+package com.sd.lib.blur.core.source;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.memory.BlurMemory;
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.strategy.BlurStrategyFactory;
+
+/**
+ * 把源按照压缩倍数绘制到池中的Bitmap后得到的源，可以在任意线程绘制
+ * <p>
+ * 宽高和原来的源一致，用同样的参数模糊的时候是逐像素拷贝
+ */
+public final class CapturedSource implements RegionBlurSource
+{
+    /**
+     * 内存不足的时候最多把压缩倍数翻倍几次
+     */
+    private static final int MAX_DEGRADE_COUNT = 2;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mDownSampling;
+    private final Rect mDrawRegion;
+    private final BitmapPool mPool;
+
+    private Bitmap mBitmap;
+    private boolean mHasContentHash;
+    private long mContentHash;
+
+    private CapturedSource(int width, int height, int downSampling, Rect drawRegion, Bitmap bitmap, BitmapPool pool)
+    {
+        mWidth = width;
+        mHeight = height;
+        mDownSampling = downSampling;
+        mDrawRegion = drawRegion;
+        mBitmap = bitmap;
+        mPool = pool;
+    }
+
+    /**
+     * 在当前线程把源绘制到压缩后的Bitmap中，只绘制{@link BlurOptions#getRegion()}和模糊半径需要的范围
+     *
+     * @param source
+     * @param options
+     * @return null-源的宽或者高无效
+     */
+    public static CapturedSource capture(BlurSource source, BlurOptions options)
+    {
+        if (source == null)
+            throw new IllegalArgumentException("source is null");
+
+        if (options == null)
+            throw new IllegalArgumentException("options is null");
+
+        final BitmapPool pool = BitmapPoolFactory.getDefault();
+        int downSampling = options.getDownSampling();
+        for (int i = 0; ; i++)
+        {
+            try
+            {
+                return capture(source, options, downSampling, pool);
+            } catch (OutOfMemoryError e)
+            {
+                // 内存不足的时候用更大的压缩倍数捕获，绘制的时候会放大到原来的位置
+                pool.clear();
+                BlurMemory.notifyLowMemory();
+                if (i >= MAX_DEGRADE_COUNT)
+                    return null;
+                downSampling *= 2;
+            }
+        }
+    }
+
+    private static CapturedSource capture(BlurSource source, BlurOptions options, int downSampling, BitmapPool pool)
+    {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+
+        final SimpleConfig config = new SimpleConfig(pool);
+        // 捕获的时候不知道之后用哪个策略模糊，按照最大的范围额外绘制
+        if (!config.init(width, height, downSampling, options.getRegion(),
+                BlurStrategyFactory.getMaxKernelReach(options.getRadius())))
+            return null;
+
+        final Rect drawRegion = config.getDrawRegion();
+        config.getBitmapInput().eraseColor(Color.TRANSPARENT);
+        if (source instanceof SampledSource)
+            ((SampledSource) source).prepare(downSampling);
+        try
+        {
+            SimpleConfig.drawSource(source, config.getCanvas(), drawRegion);
+        } finally
+        {
+            if (source instanceof SampledSource)
+                ((SampledSource) source).release();
+        }
+
+        return new CapturedSource(width, height, downSampling, drawRegion, config.detachBitmapInput(), pool);
+    }
+
+    /**
+     * 返回压缩后的Bitmap
+     *
+     * @return
+     */
+    public synchronized Bitmap getBitmap()
+    {
+        return mBitmap;
+    }
+
+    /**
+     * 返回压缩后内容的哈希值，用来判断两次捕获的内容是否相同，结果会被缓存
+     *
+     * @return
+     */
+    public synchronized long getContentHash()
+    {
+        if (mHasContentHash || mBitmap == null)
+            return mContentHash;
+
+        final int width = mBitmap.getWidth();
+        final int height = mBitmap.getHeight();
+        final int[] row = new int[width];
+
+        long hash = 1125899906842597L;
+        hash = 31 * hash + width;
+        hash = 31 * hash + height;
+        for (int y = 0; y < height; y++)
+        {
+            mBitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++)
+            {
+                hash = 31 * hash + row[x];
+            }
+        }
+
+        mContentHash = hash;
+        mHasContentHash = true;
+        return hash;
+    }
+
+    /**
+     * 返回捕获时候的压缩倍数，内存不足的时候可能比参数中的大
+     *
+     * @return
+     */
+    public int getDownSampling()
+    {
+        return mDownSampling;
+    }
+
+    /**
+     * 返回捕获的源区域(源的坐标系)
+     *
+     * @return
+     */
+    public Rect getDrawRegion()
+    {
+        return new Rect(mDrawRegion);
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return mHeight;
+    }
+
+    @Override
+    public void draw(Canvas canvas)
+    {
+        draw(canvas, null);
+    }
+
+    @Override
+    public synchronized void draw(Canvas canvas, Rect region)
+    {
+        if (mBitmap == null)
+            return;
+
+        canvas.save();
+        canvas.translate(mDrawRegion.left, mDrawRegion.top);
+        canvas.scale(mDownSampling, mDownSampling);
+        canvas.drawBitmap(mBitmap, 0, 0, null);
+        canvas.restore();
+    }
+
+    /**
+     * 把Bitmap放回池中，调用后此对象不再可用
+     */
+    public synchronized void release()
+    {
+        if (mBitmap != null)
+        {
+            mPool.put(mBitmap);
+            mBitmap = null;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.sd.lib.blur.core.source;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 从图片数据解码的源，宽高只解码图片头得到，绘制之前按照压缩倍数用inSampleSize解码，
+ * API 19及以上解码到池中的Bitmap
+ * <p>
+ * 解码失败的时候什么都不绘制
+ */
+abstract class DecodeSource implements SampledSource, RegionBlurSource
+{
+    private final BitmapPool mPool = BitmapPoolFactory.getDefault();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private int mWidth = -1;
+    private int mHeight = -1;
+
+    private Bitmap mBitmap;
+
+    /**
+     * 打开图片数据，每次调用都返回新的流
+     *
+     * @return
+     * @throws IOException
+     */
+    protected abstract InputStream open() throws IOException;
+
+    /**
+     * 返回源的宽高相对图片像素的缩放比例，默认不缩放
+     *
+     * @return
+     */
+    protected float getDensityScale()
+    {
+        return 1;
+    }
+
+    private synchronized void decodeBounds()
+    {
+        if (mWidth >= 0)
+            return;
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(options);
+
+        final float scale = getDensityScale();
+        mWidth = Math.max(0, Math.round(options.outWidth * scale));
+        mHeight = Math.max(0, Math.round(options.outHeight * scale));
+    }
+
+    @Override
+    public int getWidth()
+    {
+        decodeBounds();
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        decodeBounds();
+        return mHeight;
+    }
+
+    @Override
+    public synchronized void prepare(int downSampling)
+    {
+        release();
+
+        final int width = getWidth();
+        final int height = getHeight();
+        if (width <= 0 || height <= 0)
+            return;
+
+        // 压缩倍数按照源的宽高计算，换算为图片像素的倍数
+        final int sampleSize = SimpleConfig.getSampleSize((int) (downSampling / getDensityScale()));
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+
+        if (Build.VERSION.SDK_INT >= 19)
+        {
+            // API 19及以上只要求复用的Bitmap足够大，宽高按照向上取整申请
+            final float scale = getDensityScale() * sampleSize;
+            options.inBitmap = mPool.get((int) Math.ceil(width / scale),
+                    (int) Math.ceil(height / scale),
+                    Bitmap.Config.ARGB_8888);
+        }
+
+        Bitmap bitmap;
+        try
+        {
+            bitmap = decode(options);
+        } catch (IllegalArgumentException e)
+        {
+            // 不能复用的时候重新创建
+            bitmap = null;
+        }
+
+        if (bitmap == null && options.inBitmap != null)
+        {
+            mPool.put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = decode(options);
+        }
+
+        mBitmap = bitmap;
+    }
+
+    @Override
+    public synchronized void release()
+    {
+        if (mBitmap != null)
+        {
+            mPool.put(mBitmap);
+            mBitmap = null;
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas)
+    {
+        draw(canvas, null);
+    }
+
+    @Override
+    public synchronized void draw(Canvas canvas, Rect region)
+    {
+        // 没有经过模糊流程直接绘制的时候完整解码，绘制后释放
+        final boolean prepared = mBitmap != null;
+        if (!prepared)
+            prepare(1);
+
+        try
+        {
+            final Bitmap bitmap = mBitmap;
+            if (bitmap == null)
+                return;
+
+            // 采样后的宽高可能有取整误差，直接拉伸到源的宽高
+            canvas.drawBitmap(bitmap, null, new Rect(0, 0, mWidth, mHeight), mPaint);
+        } finally
+        {
+            if (!prepared)
+                release();
+        }
+    }
+
+    private Bitmap decode(BitmapFactory.Options options)
+    {
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = open();
+            if (inputStream == null)
+                return null;
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+            return null;
+        } finally
+        {
+            if (inputStream != null)
+            {
+                try
+                {
+                    inputStream.close();
+                } catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.sd.lib.blur.core.source;
 
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 
 class DrawableSource extends BaseSource<Drawable>
@@ -25,6 +26,21 @@ class DrawableSource extends BaseSource<Drawable>
     @Override
     public void draw(Canvas canvas)
     {
+        draw(canvas, null);
+    }
+
+    @Override
+    public void draw(Canvas canvas, Rect region)
+    {
+        if (region == null)
+        {
+            getSource().draw(canvas);
+            return;
+        }
+
+        canvas.save();
+        canvas.clipRect(region);
         getSource().draw(canvas);
+        canvas.restore();
     }
 }
@@ -0,0 +1,206 @@
+package com.sd.lib.blur.core.source;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 从JPEG的数据流中读取EXIF缩略图，只解析APP1段中的IFD1，不读取图片数据
+ */
+final class ExifThumbnail
+{
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_APP1 = 0xE1;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_EOI = 0xD9;
+
+    private static final int TAG_COMPRESSION = 0x0103;
+    private static final int TAG_THUMBNAIL_OFFSET = 0x0201;
+    private static final int TAG_THUMBNAIL_LENGTH = 0x0202;
+
+    /**
+     * 缩略图是JPEG格式
+     */
+    private static final int COMPRESSION_JPEG = 6;
+
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+
+    private ExifThumbnail()
+    {
+    }
+
+    /**
+     * 读取缩略图的JPEG数据
+     *
+     * @param inputStream
+     * @return null-不是JPEG或者没有缩略图
+     * @throws IOException
+     */
+    public static byte[] read(InputStream inputStream) throws IOException
+    {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readUnsignedByte() != 0xFF || input.readUnsignedByte() != MARKER_SOI)
+            return null;
+
+        while (true)
+        {
+            if (input.readUnsignedByte() != 0xFF)
+                return null;
+
+            int marker = input.readUnsignedByte();
+            while (marker == 0xFF)
+            {
+                // 填充字节
+                marker = input.readUnsignedByte();
+            }
+
+            if (marker == MARKER_SOS || marker == MARKER_EOI)
+                return null;
+
+            final int length = input.readUnsignedShort() - 2;
+            if (length < 0)
+                return null;
+
+            if (marker == MARKER_APP1)
+            {
+                final byte[] segment = new byte[length];
+                input.readFully(segment);
+                if (isExif(segment))
+                    return readThumbnail(segment, 6);
+            } else
+            {
+                skipFully(input, length);
+            }
+        }
+    }
+
+    private static boolean isExif(byte[] segment)
+    {
+        return segment.length > 6
+                && segment[0] == 'E' && segment[1] == 'x' && segment[2] == 'i' && segment[3] == 'f'
+                && segment[4] == 0 && segment[5] == 0;
+    }
+
+    /**
+     * @param data
+     * @param tiff TIFF头在数据中的位置，EXIF中的偏移量都相对于这个位置
+     * @return
+     */
+    private static byte[] readThumbnail(byte[] data, int tiff)
+    {
+        if (data.length < tiff + 8)
+            return null;
+
+        final boolean littleEndian;
+        if (data[tiff] == 'I' && data[tiff + 1] == 'I')
+            littleEndian = true;
+        else if (data[tiff] == 'M' && data[tiff + 1] == 'M')
+            littleEndian = false;
+        else
+            return null;
+
+        if (readShort(data, tiff + 2, littleEndian) != 0x2A)
+            return null;
+
+        // 跳过IFD0，找到IFD1
+        final long ifd0 = readInt(data, tiff + 4, littleEndian);
+        final int ifd0Count = getEntryCount(data, tiff, ifd0, littleEndian);
+        if (ifd0Count < 0)
+            return null;
+
+        final long ifd1 = readInt(data, (int) (tiff + ifd0 + 2 + ifd0Count * 12), littleEndian);
+        final int ifd1Count = getEntryCount(data, tiff, ifd1, littleEndian);
+        if (ifd1 == 0 || ifd1Count < 0)
+            return null;
+
+        long offset = -1;
+        long length = -1;
+        int compression = COMPRESSION_JPEG;
+        for (int i = 0; i < ifd1Count; i++)
+        {
+            final int entry = (int) (tiff + ifd1 + 2 + i * 12);
+            final int tag = readShort(data, entry, littleEndian);
+            final long value = readValue(data, entry, littleEndian);
+            if (tag == TAG_THUMBNAIL_OFFSET)
+                offset = value;
+            else if (tag == TAG_THUMBNAIL_LENGTH)
+                length = value;
+            else if (tag == TAG_COMPRESSION)
+                compression = (int) value;
+        }
+
+        if (compression != COMPRESSION_JPEG || offset < 0 || length <= 0)
+            return null;
+        if (tiff + offset + length > data.length)
+            return null;
+
+        final byte[] thumbnail = new byte[(int) length];
+        System.arraycopy(data, (int) (tiff + offset), thumbnail, 0, (int) length);
+        return thumbnail;
+    }
+
+    /**
+     * 返回IFD中的条目数量，IFD超出数据范围的时候返回-1
+     */
+    private static int getEntryCount(byte[] data, int tiff, long ifd, boolean littleEndian)
+    {
+        if (ifd <= 0 || tiff + ifd + 2 > data.length)
+            return -1;
+
+        final int count = readShort(data, (int) (tiff + ifd), littleEndian);
+        // 条目之后还有4字节的下一个IFD的偏移量
+        if (tiff + ifd + 2 + count * 12L + 4 > data.length)
+            return -1;
+        return count;
+    }
+
+    /**
+     * 读取条目的整数值，只支持SHORT和LONG，其他类型返回-1
+     */
+    private static long readValue(byte[] data, int entry, boolean littleEndian)
+    {
+        final int type = readShort(data, entry + 2, littleEndian);
+        if (type == TYPE_SHORT)
+            return readShort(data, entry + 8, littleEndian);
+        if (type == TYPE_LONG)
+            return readInt(data, entry + 8, littleEndian);
+        return -1;
+    }
+
+    private static int readShort(byte[] data, int index, boolean littleEndian)
+    {
+        final int b0 = data[index] & 0xFF;
+        final int b1 = data[index + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static long readInt(byte[] data, int index, boolean littleEndian)
+    {
+        final long b0 = data[index] & 0xFF;
+        final long b1 = data[index + 1] & 0xFF;
+        final long b2 = data[index + 2] & 0xFF;
+        final long b3 = data[index + 3] & 0xFF;
+        return littleEndian
+                ? (b3 << 24) | (b2 << 16) | (b1 << 8) | b0
+                : (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+    }
+
+    private static void skipFully(InputStream input, long count) throws IOException
+    {
+        while (count > 0)
+        {
+            final long skipped = input.skip(count);
+            if (skipped > 0)
+            {
+                count -= skipped;
+            } else
+            {
+                if (input.read() < 0)
+                    throw new IOException("unexpected end of stream");
+                count--;
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.sd.lib.blur.core.source;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 优先使用JPEG中的EXIF缩略图，缩略图的宽高不小于压缩后的宽高的时候不解码原图，
+ * 没有缩略图、缩略图太小或者宽高比例和原图不一致的时候按照压缩倍数采样解码原图
+ */
+class ExifThumbnailSource implements SampledSource, RegionBlurSource
+{
+    /**
+     * 缩略图和原图的宽高比例允许的误差
+     */
+    private static final float MAX_ASPECT_ERROR = 0.02f;
+
+    private final DecodeSource mSource;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private boolean mIsThumbnailRead;
+    private byte[] mThumbnailData;
+    private int mThumbnailWidth;
+    private int mThumbnailHeight;
+
+    private Bitmap mThumbnail;
+
+    public ExifThumbnailSource(DecodeSource source)
+    {
+        mSource = source;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return mSource.getWidth();
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return mSource.getHeight();
+    }
+
+    private synchronized void readThumbnail()
+    {
+        if (mIsThumbnailRead)
+            return;
+        mIsThumbnailRead = true;
+
+        InputStream inputStream = null;
+        try
+        {
+            inputStream = mSource.open();
+            mThumbnailData = ExifThumbnail.read(inputStream);
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+        } finally
+        {
+            if (inputStream != null)
+            {
+                try
+                {
+                    inputStream.close();
+                } catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        if (mThumbnailData == null)
+            return;
+
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(mThumbnailData, 0, mThumbnailData.length, options);
+        mThumbnailWidth = options.outWidth;
+        mThumbnailHeight = options.outHeight;
+    }
+
+    /**
+     * 缩略图是否满足压缩后的宽高
+     */
+    private boolean isThumbnailEnough(int downSampling)
+    {
+        readThumbnail();
+        if (mThumbnailData == null || mThumbnailWidth <= 0 || mThumbnailHeight <= 0)
+            return false;
+
+        final int width = getWidth();
+        final int height = getHeight();
+        if (width <= 0 || height <= 0)
+            return false;
+
+        // 有的缩略图是固定比例加黑边
+        final float aspect = (float) width / height;
+        final float thumbnailAspect = (float) mThumbnailWidth / mThumbnailHeight;
+        if (Math.abs(thumbnailAspect - aspect) > aspect * MAX_ASPECT_ERROR)
+            return false;
+
+        return mThumbnailWidth >= width / downSampling && mThumbnailHeight >= height / downSampling;
+    }
+
+    @Override
+    public synchronized void prepare(int downSampling)
+    {
+        release();
+
+        if (isThumbnailEnough(downSampling))
+        {
+            mThumbnail = BitmapFactory.decodeByteArray(mThumbnailData, 0, mThumbnailData.length);
+            if (mThumbnail != null)
+                return;
+        }
+
+        mSource.prepare(downSampling);
+    }
+
+    @Override
+    public synchronized void release()
+    {
+        if (mThumbnail != null)
+        {
+            mThumbnail.recycle();
+            mThumbnail = null;
+        }
+        mSource.release();
+    }
+
+    @Override
+    public void draw(Canvas canvas)
+    {
+        draw(canvas, null);
+    }
+
+    @Override
+    public synchronized void draw(Canvas canvas, Rect region)
+    {
+        final Bitmap thumbnail = mThumbnail;
+        if (thumbnail == null)
+        {
+            mSource.draw(canvas, region);
+            return;
+        }
+
+        canvas.drawBitmap(thumbnail, null, new Rect(0, 0, getWidth(), getHeight()), mPaint);
+    }
+}
@@ -0,0 +1,10 @@
+package com.sd.lib.blur.core.source;
+
+/**
+ * 只能在主线程绘制的源，例如{@link android.view.View}
+ * <p>
+ * 异步模糊的时候会先在主线程把源绘制到压缩后的Bitmap中，再交给子线程模糊
+ */
+public interface MainThreadSource extends BlurSource
+{
+}
@@ -0,0 +1,18 @@
+package com.sd.lib.blur.core.source;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * 可以只绘制某个区域的源，没有实现这个接口的源绘制的时候会裁剪到区域内
+ */
+public interface RegionBlurSource extends BlurSource
+{
+    /**
+     * 只绘制源的某个区域，区域外的内容可以不绘制
+     *
+     * @param canvas
+     * @param region 源的坐标系，null表示整个源
+     */
+    void draw(Canvas canvas, Rect region);
+}
@@ -0,0 +1,74 @@
+package com.sd.lib.blur.core.source;
+
+import android.content.res.Resources;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import java.io.InputStream;
+
+/**
+ * 图片资源，宽高和{@link Resources#getDrawable(int)}一样按照资源目录的密度缩放到屏幕密度，
+ * 图片按照压缩倍数采样解码
+ * <p>
+ * .9图需要按照拉伸区域绘制，不能当作普通的位图，宽高为0
+ */
+class ResourceSource extends DecodeSource
+{
+    private static final String NINE_PATCH_SUFFIX = ".9.png";
+
+    private final Resources mResources;
+    private final int mResId;
+
+    private TypedValue mValue;
+
+    public ResourceSource(Resources resources, int resId)
+    {
+        mResources = resources;
+        mResId = resId;
+    }
+
+    private synchronized TypedValue getValue()
+    {
+        if (mValue == null)
+        {
+            final TypedValue value = new TypedValue();
+            mResources.getValue(mResId, value, true);
+            mValue = value;
+        }
+        return mValue;
+    }
+
+    /**
+     * 是否是.9图
+     *
+     * @return
+     */
+    public boolean isNinePatch()
+    {
+        final CharSequence file = getValue().string;
+        return file != null && file.toString().endsWith(NINE_PATCH_SUFFIX);
+    }
+
+    @Override
+    protected InputStream open()
+    {
+        if (isNinePatch())
+            return null;
+        return mResources.openRawResource(mResId, new TypedValue());
+    }
+
+    @Override
+    protected float getDensityScale()
+    {
+        int density = getValue().density;
+        if (density == TypedValue.DENSITY_NONE)
+            return 1;
+        if (density == TypedValue.DENSITY_DEFAULT)
+            density = DisplayMetrics.DENSITY_DEFAULT;
+
+        final int targetDensity = mResources.getDisplayMetrics().densityDpi;
+        if (density <= 0 || targetDensity <= 0)
+            return 1;
+        return (float) targetDensity / density;
+    }
+}
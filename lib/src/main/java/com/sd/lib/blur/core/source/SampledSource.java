@@ -0,0 +1,21 @@
+package com.sd.lib.blur.core.source;
+
+/**
+ * 绘制之前需要按照压缩倍数准备内容的源，例如解码图片的时候按照压缩倍数采样
+ * <p>
+ * 模糊流程在绘制之前调用{@link #prepare(int)}，绘制之后调用{@link #release()}
+ */
+public interface SampledSource extends BlurSource
+{
+    /**
+     * 准备内容，在绘制的线程调用
+     *
+     * @param downSampling 压缩倍数
+     */
+    void prepare(int downSampling);
+
+    /**
+     * 释放{@link #prepare(int)}准备的内容
+     */
+    void release();
+}
@@ -1,16 +1,19 @@
 package com.sd.lib.blur.core.source;
 
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.os.Handler;
 import android.os.Looper;
 import android.view.View;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
 
-class ViewSource implements BlurSource
+class ViewSource implements MainThreadSource, RegionBlurSource
 {
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
     private final WeakReference<View> mView;
-    private Handler mHandler;
 
     public ViewSource(View source)
     {
@@ -39,43 +42,59 @@ class ViewSource implements BlurSource
     }
 
     @Override
-    public void draw(final Canvas canvas)
+    public void draw(Canvas canvas)
+    {
+        draw(canvas, null);
+    }
+
+    @Override
+    public void draw(final Canvas canvas, final Rect region)
     {
-        View view = getView();
+        final View view = getView();
         if (view == null)
             return;
 
         if (Looper.myLooper() == Looper.getMainLooper())
         {
-            view.draw(canvas);
+            if (region == null)
+            {
+                view.draw(canvas);
+            } else
+            {
+                // 裁剪之后区域外的子view不会被绘制
+                canvas.save();
+                canvas.clipRect(region);
+                view.draw(canvas);
+                canvas.restore();
+            }
         } else
         {
-            synchronized (ViewSource.this)
+            /**
+             * 异步模糊会先在主线程捕获{@link CapturedSource}，不会走到这里，
+             * 只有在子线程直接同步模糊的时候才需要等待主线程绘制
+             */
+            final CountDownLatch latch = new CountDownLatch(1);
+            MAIN_HANDLER.post(new Runnable()
             {
-                if (mHandler == null)
-                    mHandler = new Handler(Looper.getMainLooper());
-
-                mHandler.post(new Runnable()
+                @Override
+                public void run()
                 {
-                    @Override
-                    public void run()
+                    try
                     {
-                        draw(canvas);
-
-                        synchronized (ViewSource.this)
-                        {
-                            ViewSource.this.notifyAll();
-                        }
+                        draw(canvas, region);
+                    } finally
+                    {
+                        latch.countDown();
                     }
-                });
-
-                try
-                {
-                    ViewSource.this.wait();
-                } catch (InterruptedException e)
-                {
-                    e.printStackTrace();
                 }
+            });
+
+            try
+            {
+                latch.await();
+            } catch (InterruptedException e)
+            {
+                e.printStackTrace();
             }
         }
     }
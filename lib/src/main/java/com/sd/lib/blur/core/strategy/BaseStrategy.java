@@ -18,4 +18,34 @@ abstract class BaseStrategy implements BlurStrategy
             return false;
         }
     }
+
+    /**
+     * 返回标准差和半径按照{@link RenderScriptStrategy}换算的高斯核的范围，覆盖3倍标准差
+     *
+     * @param radius
+     * @return
+     */
+    static int getGaussianReach(int radius)
+    {
+        if (radius <= 0)
+            return 0;
+
+        final double sigma = 0.4 * radius + 0.6;
+        return (int) Math.ceil(3 * sigma) + 2;
+    }
+
+    /**
+     * 默认模糊核的范围就是模糊半径，StackBlur和RenderScript是这样
+     */
+    @Override
+    public int getKernelReach(int radius)
+    {
+        return Math.max(radius, 0);
+    }
+
+    @Override
+    public String getName()
+    {
+        return getClass().getSimpleName();
+    }
 }
@@ -4,9 +4,29 @@ import android.graphics.Bitmap;
 
 public interface BlurStrategy
 {
+    /**
+     * RenderScript和StackBlur支持的最大半径，超过的时候使用盒子模糊
+     */
+    int MAX_KERNEL_RADIUS = 25;
+
     void blur(int radius, Bitmap bitmapInput, Bitmap bitmapOutput);
 
+    /**
+     * 返回模糊核最远读取的距离(压缩后的像素)，区域模糊和局部模糊按照这个距离额外绘制四周的内容
+     *
+     * @param radius
+     * @return
+     */
+    int getKernelReach(int radius);
+
     boolean test();
 
+    /**
+     * 返回策略的名称，用于统计
+     *
+     * @return
+     */
+    String getName();
+
     void destroy();
 }
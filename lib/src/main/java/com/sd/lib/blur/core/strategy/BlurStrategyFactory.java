@@ -12,4 +12,59 @@ public final class BlurStrategyFactory
     {
         return new CompatStrategy(context);
     }
+
+    /**
+     * 返回所有内置策略中最大的模糊核范围(压缩后的像素)，模糊之前不知道使用哪个策略的时候按照这个范围额外绘制
+     *
+     * @param radius
+     * @return
+     */
+    public static int getMaxKernelReach(int radius)
+    {
+        int reach = Math.max(radius, 0);
+        reach = Math.max(reach, BoxStrategy.getReach(radius));
+        reach = Math.max(reach, BaseStrategy.getGaussianReach(radius));
+        reach = Math.max(reach, DualFilterStrategy.getReach(radius));
+        return reach;
+    }
+
+    /**
+     * StackBlur，半径不能超过{@link BlurStrategy#MAX_KERNEL_RADIUS}
+     *
+     * @return
+     */
+    public static BlurStrategy createJava()
+    {
+        return new JavaStrategy();
+    }
+
+    /**
+     * 双重滤波模糊，模糊半径决定缩小的级数，适合很强的模糊
+     *
+     * @return
+     */
+    public static BlurStrategy createDualFilter()
+    {
+        return new DualFilterStrategy();
+    }
+
+    /**
+     * 递归高斯模糊，每个像素的耗时和模糊半径无关，结果是真正的高斯分布
+     *
+     * @return
+     */
+    public static BlurStrategy createGaussian()
+    {
+        return new GaussianStrategy();
+    }
+
+    /**
+     * 盒子模糊，每个像素的耗时和模糊半径无关
+     *
+     * @return
+     */
+    public static BlurStrategy createBox()
+    {
+        return new BoxStrategy();
+    }
 }
@@ -0,0 +1,164 @@
+package com.sd.lib.blur.core.strategy;
+
+import android.graphics.Bitmap;
+
+/**
+ * 连续3次盒子模糊近似高斯模糊，每次水平和垂直方向都用滑动累加和计算，
+ * 每个像素的耗时和模糊半径无关，适合大半径
+ * <p>
+ * 半径和标准差的换算和{@link RenderScriptStrategy}一致，保留原来的透明度
+ */
+class BoxStrategy extends BaseStrategy
+{
+    private static final int PASS_COUNT = 3;
+
+    private int[] mPixels;
+    private int[] mBuffer;
+
+    @Override
+    public void blur(int radius, Bitmap bitmapInput, Bitmap bitmapOutput)
+    {
+        final int width = bitmapInput.getWidth();
+        final int height = bitmapInput.getHeight();
+        final int size = width * height;
+
+        if (mPixels == null || mPixels.length < size)
+        {
+            mPixels = new int[size];
+            mBuffer = new int[size];
+        }
+
+        final int[] pixels = mPixels;
+        final int[] buffer = mBuffer;
+        bitmapInput.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        for (int boxRadius : getBoxRadii(radius))
+        {
+            if (boxRadius <= 0)
+                continue;
+
+            // 水平方向从pixels到buffer，垂直方向再写回pixels
+            boxBlur(pixels, buffer, width, height, 1, width, boxRadius);
+            boxBlur(buffer, pixels, height, width, width, 1, boxRadius);
+        }
+
+        bitmapOutput.setPixels(pixels, 0, width, 0, 0, width, height);
+    }
+
+    @Override
+    public int getKernelReach(int radius)
+    {
+        return getReach(radius);
+    }
+
+    /**
+     * 返回3次盒子模糊的半径之和，大约是3倍标准差，比模糊半径大
+     *
+     * @param radius
+     * @return
+     */
+    static int getReach(int radius)
+    {
+        if (radius <= 0)
+            return 0;
+
+        int reach = 0;
+        for (int boxRadius : getBoxRadii(radius))
+        {
+            reach += boxRadius;
+        }
+        return reach;
+    }
+
+    /**
+     * 返回每次盒子模糊的半径，使3次盒子模糊的方差接近高斯模糊
+     *
+     * @param radius
+     * @return
+     */
+    static int[] getBoxRadii(int radius)
+    {
+        final double sigma = 0.4 * radius + 0.6;
+        final double variance = sigma * sigma;
+
+        int lower = (int) Math.floor(Math.sqrt(12 * variance / PASS_COUNT + 1));
+        if (lower % 2 == 0)
+            lower--;
+        final int upper = lower + 2;
+
+        // 宽度为lower的次数，其余用upper
+        final int lowerCount = (int) Math.round((12 * variance - PASS_COUNT * lower * lower - 4 * PASS_COUNT * lower - 3 * PASS_COUNT)
+                / (-4.0 * lower - 4));
+
+        final int[] radii = new int[PASS_COUNT];
+        for (int i = 0; i < PASS_COUNT; i++)
+        {
+            final int boxSize = i < lowerCount ? lower : upper;
+            radii[i] = (boxSize - 1) / 2;
+        }
+        return radii;
+    }
+
+    /**
+     * 沿一个方向做盒子模糊，超出边缘的部分取边缘的像素
+     *
+     * @param src       源
+     * @param dst       结果
+     * @param length    模糊方向的像素数量
+     * @param lineCount 行数
+     * @param step      模糊方向上相邻像素的下标差
+     * @param lineStep  相邻行第一个像素的下标差
+     * @param boxRadius 盒子半径
+     */
+    private static void boxBlur(int[] src, int[] dst, int length, int lineCount, int step, int lineStep, int boxRadius)
+    {
+        final int div = boxRadius * 2 + 1;
+        final int half = div / 2;
+        final int last = length - 1;
+
+        for (int line = 0; line < lineCount; line++)
+        {
+            final int start = line * lineStep;
+
+            int rSum = 0;
+            int gSum = 0;
+            int bSum = 0;
+            for (int i = -boxRadius; i <= boxRadius; i++)
+            {
+                final int color = src[start + clamp(i, last) * step];
+                rSum += (color >> 16) & 0xff;
+                gSum += (color >> 8) & 0xff;
+                bSum += color & 0xff;
+            }
+
+            int index = start;
+            for (int i = 0; i < length; i++)
+            {
+                dst[index] = (0xff000000 & src[index])
+                        | (((rSum + half) / div) << 16)
+                        | (((gSum + half) / div) << 8)
+                        | ((bSum + half) / div);
+
+                final int colorIn = src[start + clamp(i + boxRadius + 1, last) * step];
+                final int colorOut = src[start + clamp(i - boxRadius, last) * step];
+                rSum += ((colorIn >> 16) & 0xff) - ((colorOut >> 16) & 0xff);
+                gSum += ((colorIn >> 8) & 0xff) - ((colorOut >> 8) & 0xff);
+                bSum += (colorIn & 0xff) - (colorOut & 0xff);
+
+                index += step;
+            }
+        }
+    }
+
+    private static int clamp(int value, int max)
+    {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+
+    @Override
+    public void destroy()
+    {
+        mPixels = null;
+        mBuffer = null;
+    }
+}
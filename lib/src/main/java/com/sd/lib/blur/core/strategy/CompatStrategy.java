@@ -7,6 +7,8 @@ import android.os.Build;
 class CompatStrategy extends BaseStrategy
 {
     private final BlurStrategy mStrategy;
+    private BlurStrategy mBoxStrategy;
+    private BlurStrategy mLastStrategy;
 
     public CompatStrategy(Context context)
     {
@@ -30,12 +32,35 @@ class CompatStrategy extends BaseStrategy
     @Override
     public void blur(int radius, Bitmap bitmapInput, Bitmap bitmapOutput)
     {
-        mStrategy.blur(radius, bitmapInput, bitmapOutput);
+        if (radius > MAX_KERNEL_RADIUS)
+        {
+            if (mBoxStrategy == null)
+                mBoxStrategy = new BoxStrategy();
+            mLastStrategy = mBoxStrategy;
+        } else
+        {
+            mLastStrategy = mStrategy;
+        }
+        mLastStrategy.blur(radius, bitmapInput, bitmapOutput);
+    }
+
+    @Override
+    public int getKernelReach(int radius)
+    {
+        return radius > MAX_KERNEL_RADIUS ? BoxStrategy.getReach(radius) : mStrategy.getKernelReach(radius);
+    }
+
+    @Override
+    public String getName()
+    {
+        return mLastStrategy == null ? mStrategy.getName() : mLastStrategy.getName();
     }
 
     @Override
     public void destroy()
     {
         mStrategy.destroy();
+        if (mBoxStrategy != null)
+            mBoxStrategy.destroy();
     }
 }
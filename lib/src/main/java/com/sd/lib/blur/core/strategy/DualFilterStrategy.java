@@ -0,0 +1,252 @@
+package com.sd.lib.blur.core.strategy;
+
+import android.graphics.Bitmap;
+
+/**
+ * 双重滤波模糊(Dual Kawase)，先逐级缩小到一半再逐级放大回来，每一级只采样少量的点
+ * <p>
+ * 越往下的级别像素越少，总的计算量不超过原图的4/3倍，适合很强的模糊。
+ * 模糊半径决定级数，保留原来的透明度
+ */
+class DualFilterStrategy extends BaseStrategy
+{
+    /**
+     * 每一级对应的半径，由阶跃边缘测得的标准差按照和{@link RenderScriptStrategy}相同的方式换算，第0个表示1级
+     */
+    private static final int[] LEVEL_RADII = {3, 8, 18, 37, 76, 153, 307};
+
+    private int[][] mLevels;
+    private int[] mResult;
+
+    @Override
+    public void blur(int radius, Bitmap bitmapInput, Bitmap bitmapOutput)
+    {
+        final int width = bitmapInput.getWidth();
+        final int height = bitmapInput.getHeight();
+
+        final int levelCount = getLevelCount(radius, width, height);
+        ensureLevels(levelCount, width, height);
+
+        final int[] pixels = mLevels[0];
+        bitmapInput.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        if (levelCount > 0)
+        {
+            for (int i = 0; i < levelCount; i++)
+            {
+                down(mLevels[i], width >> i, height >> i, mLevels[i + 1], width >> (i + 1), height >> (i + 1));
+            }
+
+            for (int i = levelCount; i > 1; i--)
+            {
+                up(mLevels[i], width >> i, height >> i, mLevels[i - 1], width >> (i - 1), height >> (i - 1));
+            }
+
+            // 最后一级直接写到输出中，透明度取原图的
+            if (mResult == null || mResult.length < width * height)
+                mResult = new int[width * height];
+
+            final int[] result = mResult;
+            up(mLevels[1], width >> 1, height >> 1, result, width, height);
+            for (int i = 0, size = width * height; i < size; i++)
+            {
+                result[i] = (pixels[i] & 0xff000000) | (result[i] & 0x00ffffff);
+            }
+            bitmapOutput.setPixels(result, 0, width, 0, 0, width, height);
+        } else
+        {
+            bitmapOutput.setPixels(pixels, 0, width, 0, 0, width, height);
+        }
+    }
+
+    @Override
+    public int getKernelReach(int radius)
+    {
+        return getReach(radius);
+    }
+
+    /**
+     * 按照级数对应的半径计算范围，级数取最接近的一级，可能比模糊半径大
+     *
+     * @param radius
+     * @return
+     */
+    static int getReach(int radius)
+    {
+        if (radius <= 0)
+            return 0;
+
+        final int levelCount = getLevelCount(radius, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        return getGaussianReach(Math.max(radius, LEVEL_RADII[levelCount - 1]));
+    }
+
+    /**
+     * 返回半径对应的级数，受图片大小限制，最小的一级宽高不小于2
+     *
+     * @param radius
+     * @param width
+     * @param height
+     * @return
+     */
+    static int getLevelCount(int radius, int width, int height)
+    {
+        int count = LEVEL_RADII.length;
+        for (int i = 0; i < LEVEL_RADII.length; i++)
+        {
+            if (radius <= LEVEL_RADII[i])
+            {
+                // 取更接近的一级
+                count = (i > 0 && radius - LEVEL_RADII[i - 1] < LEVEL_RADII[i] - radius) ? i : i + 1;
+                break;
+            }
+        }
+
+        int max = 0;
+        while ((width >> (max + 1)) >= 2 && (height >> (max + 1)) >= 2)
+        {
+            max++;
+        }
+        return Math.min(count, max);
+    }
+
+    private void ensureLevels(int levelCount, int width, int height)
+    {
+        if (mLevels == null || mLevels.length < levelCount + 1)
+            mLevels = new int[levelCount + 1][];
+
+        for (int i = 0; i <= levelCount; i++)
+        {
+            final int size = (width >> i) * (height >> i);
+            if (mLevels[i] == null || mLevels[i].length < size)
+                mLevels[i] = new int[size];
+        }
+    }
+
+    /**
+     * 缩小一半，每个像素取对应位置中心的2x2块(权重4)和四个对角方向的2x2块(权重各1)
+     */
+    static void down(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth, int dstHeight)
+    {
+        final int maxX = srcWidth - 1;
+        final int maxY = srcHeight - 1;
+        final int[] sum = new int[3];
+
+        for (int y = 0; y < dstHeight; y++)
+        {
+            final int sy = y * 2;
+            for (int x = 0; x < dstWidth; x++)
+            {
+                final int sx = x * 2;
+                sum[0] = sum[1] = sum[2] = 0;
+
+                addBlock(src, srcWidth, maxX, maxY, sx, sy, 4, sum);
+                addBlock(src, srcWidth, maxX, maxY, sx - 1, sy - 1, 1, sum);
+                addBlock(src, srcWidth, maxX, maxY, sx + 1, sy - 1, 1, sum);
+                addBlock(src, srcWidth, maxX, maxY, sx - 1, sy + 1, 1, sum);
+                addBlock(src, srcWidth, maxX, maxY, sx + 1, sy + 1, 1, sum);
+
+                // 总权重 8 * 4个像素
+                dst[y * dstWidth + x] = pack(sum, 32);
+            }
+        }
+    }
+
+    /**
+     * 放大一倍，每个像素在四个轴方向1个像素处采样(权重各1)，四个对角方向半个像素处采样(权重各2)
+     * <p>
+     * 坐标用1/4像素为单位，目标像素中心在源中的位置是(2x-1)/4
+     */
+    static void up(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth, int dstHeight)
+    {
+        final int maxX = srcWidth - 1;
+        final int maxY = srcHeight - 1;
+        final int[] sum = new int[3];
+
+        for (int y = 0; y < dstHeight; y++)
+        {
+            final int qy = y * 2 - 1;
+            for (int x = 0; x < dstWidth; x++)
+            {
+                final int qx = x * 2 - 1;
+                sum[0] = sum[1] = sum[2] = 0;
+
+                addSample(src, srcWidth, maxX, maxY, qx - 4, qy, 1, sum);
+                addSample(src, srcWidth, maxX, maxY, qx + 4, qy, 1, sum);
+                addSample(src, srcWidth, maxX, maxY, qx, qy - 4, 1, sum);
+                addSample(src, srcWidth, maxX, maxY, qx, qy + 4, 1, sum);
+                addSample(src, srcWidth, maxX, maxY, qx - 2, qy - 2, 2, sum);
+                addSample(src, srcWidth, maxX, maxY, qx + 2, qy - 2, 2, sum);
+                addSample(src, srcWidth, maxX, maxY, qx - 2, qy + 2, 2, sum);
+                addSample(src, srcWidth, maxX, maxY, qx + 2, qy + 2, 2, sum);
+
+                // 总权重 12 * 双线性插值的16
+                dst[y * dstWidth + x] = pack(sum, 192);
+            }
+        }
+    }
+
+    /**
+     * 累加以(x, y)为左上角的2x2块
+     */
+    private static void addBlock(int[] src, int width, int maxX, int maxY, int x, int y, int weight, int[] sum)
+    {
+        final int x0 = clamp(x, maxX);
+        final int x1 = clamp(x + 1, maxX);
+        final int y0 = clamp(y, maxY) * width;
+        final int y1 = clamp(y + 1, maxY) * width;
+
+        add(src[y0 + x0], weight, sum);
+        add(src[y0 + x1], weight, sum);
+        add(src[y1 + x0], weight, sum);
+        add(src[y1 + x1], weight, sum);
+    }
+
+    /**
+     * 在1/4像素坐标(qx, qy)双线性插值采样，权重乘以16
+     */
+    private static void addSample(int[] src, int width, int maxX, int maxY, int qx, int qy, int weight, int[] sum)
+    {
+        final int x = qx >> 2;
+        final int y = qy >> 2;
+        final int fx = qx & 3;
+        final int fy = qy & 3;
+
+        final int x0 = clamp(x, maxX);
+        final int x1 = clamp(x + 1, maxX);
+        final int y0 = clamp(y, maxY) * width;
+        final int y1 = clamp(y + 1, maxY) * width;
+
+        add(src[y0 + x0], weight * (4 - fx) * (4 - fy), sum);
+        add(src[y0 + x1], weight * fx * (4 - fy), sum);
+        add(src[y1 + x0], weight * (4 - fx) * fy, sum);
+        add(src[y1 + x1], weight * fx * fy, sum);
+    }
+
+    private static void add(int color, int weight, int[] sum)
+    {
+        sum[0] += ((color >> 16) & 0xff) * weight;
+        sum[1] += ((color >> 8) & 0xff) * weight;
+        sum[2] += (color & 0xff) * weight;
+    }
+
+    private static int pack(int[] sum, int div)
+    {
+        final int half = div / 2;
+        return 0xff000000
+                | (((sum[0] + half) / div) << 16)
+                | (((sum[1] + half) / div) << 8)
+                | ((sum[2] + half) / div);
+    }
+
+    private static int clamp(int value, int max)
+    {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+
+    @Override
+    public void destroy()
+    {
+        mLevels = null;
+        mResult = null;
+    }
+}
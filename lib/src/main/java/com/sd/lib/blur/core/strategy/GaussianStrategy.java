@@ -0,0 +1,185 @@
+package com.sd.lib.blur.core.strategy;
+
+import android.graphics.Bitmap;
+
+/**
+ * 递归高斯模糊(Young - van Vliet)，水平和垂直方向各做一次前向和后向的三阶IIR滤波，
+ * 每个像素的耗时和模糊半径无关，结果是真正的高斯分布
+ * <p>
+ * 半径和标准差的换算和{@link RenderScriptStrategy}一致，保留原来的透明度
+ */
+class GaussianStrategy extends BaseStrategy
+{
+    private int[] mPixels;
+    private float[] mRed;
+    private float[] mGreen;
+    private float[] mBlue;
+
+    /**
+     * IIR滤波的响应没有边界，3倍标准差以外的影响可以忽略
+     */
+    @Override
+    public int getKernelReach(int radius)
+    {
+        return getGaussianReach(radius);
+    }
+
+    @Override
+    public void blur(int radius, Bitmap bitmapInput, Bitmap bitmapOutput)
+    {
+        final int width = bitmapInput.getWidth();
+        final int height = bitmapInput.getHeight();
+        final int size = width * height;
+        final int lineSize = Math.max(width, height);
+
+        if (mPixels == null || mPixels.length < size)
+            mPixels = new int[size];
+
+        if (mRed == null || mRed.length < lineSize)
+        {
+            mRed = new float[lineSize];
+            mGreen = new float[lineSize];
+            mBlue = new float[lineSize];
+        }
+
+        final int[] pixels = mPixels;
+        bitmapInput.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        final Coefficients coefficients = new Coefficients(0.4f * radius + 0.6f);
+        for (int y = 0; y < height; y++)
+        {
+            filterLine(pixels, y * width, 1, width, coefficients);
+        }
+        for (int x = 0; x < width; x++)
+        {
+            filterLine(pixels, x, width, height, coefficients);
+        }
+
+        bitmapOutput.setPixels(pixels, 0, width, 0, 0, width, height);
+    }
+
+    /**
+     * 对一行或者一列滤波，结果写回原来的位置
+     *
+     * @param pixels       像素
+     * @param start        第一个像素的下标
+     * @param step         相邻像素的下标差
+     * @param length       像素数量
+     * @param coefficients 滤波系数
+     */
+    private void filterLine(int[] pixels, int start, int step, int length, Coefficients coefficients)
+    {
+        final float[] red = mRed;
+        final float[] green = mGreen;
+        final float[] blue = mBlue;
+
+        int index = start;
+        for (int i = 0; i < length; i++)
+        {
+            final int color = pixels[index];
+            red[i] = (color >> 16) & 0xff;
+            green[i] = (color >> 8) & 0xff;
+            blue[i] = color & 0xff;
+            index += step;
+        }
+
+        coefficients.filter(red, length);
+        coefficients.filter(green, length);
+        coefficients.filter(blue, length);
+
+        index = start;
+        for (int i = 0; i < length; i++)
+        {
+            pixels[index] = (0xff000000 & pixels[index])
+                    | (toChannel(red[i]) << 16)
+                    | (toChannel(green[i]) << 8)
+                    | toChannel(blue[i]);
+            index += step;
+        }
+    }
+
+    private static int toChannel(float value)
+    {
+        final int channel = (int) (value + 0.5f);
+        return channel < 0 ? 0 : (channel > 255 ? 255 : channel);
+    }
+
+    @Override
+    public void destroy()
+    {
+        mPixels = null;
+        mRed = null;
+        mGreen = null;
+        mBlue = null;
+    }
+
+    /**
+     * Young - van Vliet的三阶递归滤波系数，半径大的时候极点接近1，递归的状态需要用double保存
+     */
+    static final class Coefficients
+    {
+        final double mB;
+        final double mB1;
+        final double mB2;
+        final double mB3;
+
+        Coefficients(float sigma)
+        {
+            final double q;
+            if (sigma >= 2.5f)
+                q = 0.98711 * sigma - 0.96330;
+            else
+                q = 3.97156 - 4.14554 * Math.sqrt(1 - 0.26891 * Math.max(sigma, 0.5f));
+
+            final double q2 = q * q;
+            final double q3 = q2 * q;
+            final double b0 = 1.57825 + 2.44413 * q + 1.4281 * q2 + 0.422205 * q3;
+            final double b1 = 2.44413 * q + 2.85619 * q2 + 1.26661 * q3;
+            final double b2 = -(1.4281 * q2 + 1.26661 * q3);
+            final double b3 = 0.422205 * q3;
+
+            mB1 = b1 / b0;
+            mB2 = b2 / b0;
+            mB3 = b3 / b0;
+            mB = 1 - (mB1 + mB2 + mB3);
+        }
+
+        /**
+         * 前向和后向各滤波一次，超出边缘的部分取边缘的值
+         *
+         * @param data
+         * @param length
+         */
+        void filter(float[] data, int length)
+        {
+            final double b = mB;
+            final double b1 = mB1;
+            final double b2 = mB2;
+            final double b3 = mB3;
+
+            double w1 = data[0];
+            double w2 = w1;
+            double w3 = w1;
+            for (int i = 0; i < length; i++)
+            {
+                final double w = b * data[i] + b1 * w1 + b2 * w2 + b3 * w3;
+                data[i] = (float) w;
+                w3 = w2;
+                w2 = w1;
+                w1 = w;
+            }
+
+            w1 = data[length - 1];
+            w2 = w1;
+            w3 = w1;
+            for (int i = length - 1; i >= 0; i--)
+            {
+                final double w = b * data[i] + b1 * w1 + b2 * w2 + b3 * w3;
+                data[i] = (float) w;
+                w3 = w2;
+                w2 = w1;
+                w1 = w;
+            }
+        }
+    }
+}
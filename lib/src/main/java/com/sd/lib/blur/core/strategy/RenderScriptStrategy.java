@@ -36,7 +36,7 @@ class RenderScriptStrategy extends BaseStrategy
         final Allocation allocationInput = Allocation.createFromBitmap(mRenderScript, bitmapInput, Allocation.MipmapControl.MIPMAP_NONE, Allocation.USAGE_SCRIPT);
         final Allocation allocationOutput = Allocation.createTyped(mRenderScript, allocationInput.getType());
 
-        mBlurScript.setRadius(radius);
+        mBlurScript.setRadius(Math.min(radius, MAX_KERNEL_RADIUS));
         allocationInput.copyFrom(bitmapInput);
         mBlurScript.setInput(allocationInput);
         mBlurScript.forEach(allocationOutput);
@@ -0,0 +1,17 @@
+package com.sd.lib.blur.core.tile;
+
+import android.graphics.Bitmap;
+
+/**
+ * 接收{@link TiledBlur}按照从上到下的顺序输出的条带
+ */
+public interface BandOutput
+{
+    /**
+     * 一个条带模糊完成，在模糊的线程回调
+     *
+     * @param band 条带，回调结束之后会被复用，需要保留的话要复制
+     * @param top  条带在结果中的y坐标
+     */
+    void onBand(Bitmap band, int top);
+}
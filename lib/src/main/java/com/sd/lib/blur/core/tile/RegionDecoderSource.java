@@ -0,0 +1,73 @@
+package com.sd.lib.blur.core.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import java.io.IOException;
+
+/**
+ * 用{@link BitmapRegionDecoder}按照区域解码，解码器在第一次使用的时候打开
+ * <p>
+ * 打开失败的时候宽高为0
+ */
+abstract class RegionDecoderSource implements RegionSource
+{
+    private BitmapRegionDecoder mDecoder;
+
+    /**
+     * 打开解码器
+     *
+     * @return
+     * @throws IOException
+     */
+    protected abstract BitmapRegionDecoder open() throws IOException;
+
+    private synchronized BitmapRegionDecoder getDecoder()
+    {
+        if (mDecoder == null || mDecoder.isRecycled())
+        {
+            try
+            {
+                mDecoder = open();
+            } catch (IOException e)
+            {
+                e.printStackTrace();
+                mDecoder = null;
+            }
+        }
+        return mDecoder;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        final BitmapRegionDecoder decoder = getDecoder();
+        return decoder == null ? 0 : decoder.getWidth();
+    }
+
+    @Override
+    public int getHeight()
+    {
+        final BitmapRegionDecoder decoder = getDecoder();
+        return decoder == null ? 0 : decoder.getHeight();
+    }
+
+    @Override
+    public Bitmap decodeRegion(Rect region, BitmapFactory.Options options)
+    {
+        final BitmapRegionDecoder decoder = getDecoder();
+        return decoder == null ? null : decoder.decodeRegion(region, options);
+    }
+
+    @Override
+    public synchronized void release()
+    {
+        if (mDecoder != null)
+        {
+            mDecoder.recycle();
+            mDecoder = null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.sd.lib.blur.core.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+
+/**
+ * 可以按照区域解码的图片，{@link TiledBlur}每次只读取一个条带
+ */
+public interface RegionSource
+{
+    int getWidth();
+
+    int getHeight();
+
+    /**
+     * 解码某个区域
+     *
+     * @param region  图片的坐标系
+     * @param options 解码参数，inSampleSize为采样倍数
+     * @return null-解码失败
+     */
+    Bitmap decodeRegion(Rect region, BitmapFactory.Options options);
+
+    /**
+     * 释放解码器，之后再调用其他方法会重新打开
+     */
+    void release();
+}
@@ -0,0 +1,70 @@
+package com.sd.lib.blur.core.tile;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.BitmapRegionDecoder;
+import android.net.Uri;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public final class RegionSourceFactory
+{
+    private RegionSourceFactory()
+    {
+    }
+
+    /**
+     * 图片文件，支持jpeg和png
+     *
+     * @param path
+     * @return
+     */
+    public static RegionSource createFile(final String path)
+    {
+        if (path == null)
+            throw new IllegalArgumentException("path is null");
+
+        return new RegionDecoderSource()
+        {
+            @Override
+            protected BitmapRegionDecoder open() throws IOException
+            {
+                return BitmapRegionDecoder.newInstance(path, false);
+            }
+        };
+    }
+
+    /**
+     * 图片uri，支持{@link ContentResolver#openInputStream(Uri)}支持的scheme
+     *
+     * @param context
+     * @param uri
+     * @return
+     */
+    public static RegionSource create(Context context, final Uri uri)
+    {
+        if (uri == null)
+            throw new IllegalArgumentException("uri is null");
+
+        final ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        return new RegionDecoderSource()
+        {
+            @Override
+            protected BitmapRegionDecoder open() throws IOException
+            {
+                final InputStream inputStream = resolver.openInputStream(uri);
+                if (inputStream == null)
+                    throw new IOException("open uri failed: " + uri);
+
+                try
+                {
+                    return BitmapRegionDecoder.newInstance(inputStream, false);
+                } finally
+                {
+                    inputStream.close();
+                }
+            }
+        };
+    }
+}
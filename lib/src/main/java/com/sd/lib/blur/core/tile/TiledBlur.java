@@ -0,0 +1,219 @@
+package com.sd.lib.blur.core.tile;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.strategy.BlurStrategy;
+import com.sd.lib.blur.core.strategy.BlurStrategyFactory;
+
+/**
+ * 按照水平条带模糊很大的图片，占用的内存和条带的大小成正比，和图片的大小无关
+ * <p>
+ * 每个条带上下多读取{@link #getOverlap(int)}行，模糊之后只输出中间的部分，
+ * 多读取的行覆盖了模糊核的范围，所以条带的边缘和整张图片一起模糊的结果一致
+ * <p>
+ * 只使用{@link BlurOptions}的模糊半径、压缩倍数和颜色
+ */
+public final class TiledBlur
+{
+    /**
+     * 默认每个条带输出的行数
+     */
+    public static final int DEFAULT_BAND_HEIGHT = 128;
+
+    private final BlurStrategy mStrategy;
+    private final BitmapPool mPool = BitmapPoolFactory.getDefault();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private int mBandHeight = DEFAULT_BAND_HEIGHT;
+
+    /**
+     * 使用盒子模糊，每个像素的耗时和半径无关
+     */
+    public TiledBlur()
+    {
+        this(BlurStrategyFactory.createBox());
+    }
+
+    /**
+     * @param strategy 模糊核的范围要在{@link #getOverlap(int)}以内，不能使用双重滤波模糊和递归高斯模糊
+     */
+    public TiledBlur(BlurStrategy strategy)
+    {
+        if (strategy == null)
+            throw new IllegalArgumentException("strategy is null");
+        mStrategy = strategy;
+    }
+
+    /**
+     * 设置每个条带输出的行数(压缩后)，默认{@link #DEFAULT_BAND_HEIGHT}
+     *
+     * @param bandHeight
+     */
+    public synchronized void setBandHeight(int bandHeight)
+    {
+        if (bandHeight <= 0)
+            throw new IllegalArgumentException("bandHeight out of range (bandHeight > 0)");
+        mBandHeight = bandHeight;
+    }
+
+    public synchronized int getBandHeight()
+    {
+        return mBandHeight;
+    }
+
+    /**
+     * 模糊整张图片，结果的宽高是图片的宽高除以压缩倍数，结果占用的内存和结果的大小成正比
+     *
+     * @param source
+     * @param options
+     * @return null-解码失败或者压缩后的宽高为0
+     */
+    public Bitmap blur(RegionSource source, BlurOptions options)
+    {
+        final int downSampling = options.getDownSampling();
+        final int width = source.getWidth() / downSampling;
+        final int height = source.getHeight() / downSampling;
+        if (width <= 0 || height <= 0)
+            return null;
+
+        final Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(result);
+        final boolean completed = blur(source, options, new BandOutput()
+        {
+            @Override
+            public void onBand(Bitmap band, int top)
+            {
+                canvas.drawBitmap(band, 0, top, null);
+            }
+        });
+
+        if (completed)
+            return result;
+
+        result.recycle();
+        return null;
+    }
+
+    /**
+     * 从上到下依次模糊每个条带并输出
+     *
+     * @param source
+     * @param options
+     * @param output
+     * @return false-解码失败或者压缩后的宽高为0
+     */
+    public synchronized boolean blur(RegionSource source, BlurOptions options, BandOutput output)
+    {
+        if (source == null)
+            throw new IllegalArgumentException("source is null");
+        if (options == null)
+            throw new IllegalArgumentException("options is null");
+        if (output == null)
+            throw new IllegalArgumentException("output is null");
+
+        final int downSampling = options.getDownSampling();
+        final int width = source.getWidth() / downSampling;
+        final int height = source.getHeight() / downSampling;
+        if (width <= 0 || height <= 0)
+            return false;
+
+        final int radius = options.getRadius();
+        final int overlap = getOverlap(radius);
+        final int bandHeight = Math.min(mBandHeight, height);
+
+        final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inSampleSize = SimpleConfig.getSampleSize(downSampling);
+        decodeOptions.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+        try
+        {
+            for (int top = 0; top < height; top += bandHeight)
+            {
+                final int bottom = Math.min(height, top + bandHeight);
+                final int readTop = Math.max(0, top - overlap);
+                final int readBottom = Math.min(height, bottom + overlap);
+
+                // 区域按照压缩倍数对齐，结果中的每一行正好对应图片中的downSampling行
+                final Rect region = new Rect(0, readTop * downSampling, width * downSampling, readBottom * downSampling);
+                final Bitmap decoded = source.decodeRegion(region, decodeOptions);
+                if (decoded == null)
+                    return false;
+
+                try
+                {
+                    blurBand(decoded, options, width, readBottom - readTop, top - readTop, bottom - top, top, output);
+                } finally
+                {
+                    decoded.recycle();
+                }
+            }
+            return true;
+        } finally
+        {
+            // 释放按照条带大小申请的缓存
+            mStrategy.destroy();
+        }
+    }
+
+    /**
+     * @param decoded    解码的区域
+     * @param width      压缩后的宽
+     * @param readHeight 压缩后读取的行数
+     * @param offset     要输出的第一行在读取的行中的位置
+     * @param bandHeight 要输出的行数
+     * @param top        要输出的第一行在结果中的位置
+     */
+    private void blurBand(Bitmap decoded, BlurOptions options, int width, int readHeight,
+                          int offset, int bandHeight, int top, BandOutput output)
+    {
+        final Bitmap input = mPool.get(width, readHeight, Bitmap.Config.ARGB_8888);
+        final Bitmap blurred = mPool.get(width, readHeight, Bitmap.Config.ARGB_8888);
+        final Bitmap band = mPool.get(width, bandHeight, Bitmap.Config.ARGB_8888);
+        try
+        {
+            input.eraseColor(Color.TRANSPARENT);
+            final Canvas canvas = new Canvas(input);
+            canvas.drawBitmap(decoded, null, new Rect(0, 0, width, readHeight), mPaint);
+            canvas.drawColor(options.getColor());
+
+            mStrategy.blur(options.getRadius(), input, blurred);
+
+            band.eraseColor(Color.TRANSPARENT);
+            new Canvas(band).drawBitmap(blurred,
+                    new Rect(0, offset, width, offset + bandHeight),
+                    new Rect(0, 0, width, bandHeight), null);
+
+            output.onBand(band, top);
+        } finally
+        {
+            mPool.put(input);
+            mPool.put(blurred);
+            mPool.put(band);
+        }
+    }
+
+    /**
+     * 返回每个条带上下需要多读取的行数(压缩后)，覆盖3倍标准差，
+     * 盒子模糊3次的半径之和不超过这个值
+     *
+     * @param radius
+     * @return
+     */
+    public static int getOverlap(int radius)
+    {
+        if (radius <= 0)
+            return 0;
+
+        final double sigma = 0.4 * radius + 0.6;
+        return (int) Math.ceil(3 * sigma) + 2;
+    }
+}
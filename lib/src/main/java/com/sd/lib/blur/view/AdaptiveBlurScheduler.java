@@ -0,0 +1,74 @@
+package com.sd.lib.blur.view;
+
+/**
+ * 自适应模糊方式，根据最近的每像素耗时预估本次模糊的耗时，当前帧剩余的时间足够则在主线程模糊，否则在子线程模糊
+ * <p>
+ * 只能在主线程使用
+ */
+class AdaptiveBlurScheduler
+{
+    /**
+     * 还没有耗时数据的时候使用的每像素耗时(纳秒)
+     */
+    private static final double DEFAULT_NANOS_PER_PIXEL = 100;
+    /**
+     * 新的耗时数据的权重
+     */
+    private static final double SAMPLE_WEIGHT = 0.3;
+    /**
+     * 模糊最多使用当前帧剩余时间的比例，剩下的留给绘制
+     */
+    private static final float BUDGET_RATIO = 0.5f;
+
+    private final FrameClock mFrameClock = new FrameClock();
+    private double mNanosPerPixel = DEFAULT_NANOS_PER_PIXEL;
+    private AdaptiveBlurView.OnBlurModeListener mListener;
+
+    public void setListener(AdaptiveBlurView.OnBlurModeListener listener)
+    {
+        mListener = listener;
+    }
+
+    /**
+     * 决定本次模糊是否在子线程执行
+     *
+     * @param pixels 要模糊的像素数量(压缩后)，小于0表示未知
+     * @return
+     */
+    public boolean isAsync(int pixels)
+    {
+        mFrameClock.track();
+
+        final long budget = (long) (mFrameClock.getRemainingNanos() * BUDGET_RATIO);
+        final long estimated = pixels < 0 ? -1 : (long) (mNanosPerPixel * pixels);
+        final boolean async = estimated < 0 || estimated > budget;
+
+        if (mListener != null)
+            mListener.onBlurModeDecided(async, pixels, estimated, budget);
+        return async;
+    }
+
+    /**
+     * 记录模糊的耗时
+     *
+     * @param async     是否在子线程执行
+     * @param pixels    模糊的像素数量(压缩后)
+     * @param costNanos 耗时，子线程执行的时候包括排队和切换线程的时间
+     */
+    public void record(boolean async, int pixels, long costNanos)
+    {
+        if (pixels > 0 && costNanos > 0)
+        {
+            final double sample = (double) costNanos / pixels;
+            /**
+             * 子线程的耗时包括排队和切换线程的时间，只能说明实际耗时不超过它，
+             * 所以只在它比预估值小的时候更新
+             */
+            if (!async || sample < mNanosPerPixel)
+                mNanosPerPixel += SAMPLE_WEIGHT * (sample - mNanosPerPixel);
+        }
+
+        if (mListener != null)
+            mListener.onBlurFinished(async, pixels, costNanos);
+    }
+}
@@ -0,0 +1,45 @@
+package com.sd.lib.blur.view;
+
+/**
+ * 支持自适应选择在主线程还是子线程模糊的{@link BlurView}
+ */
+public interface AdaptiveBlurView extends BlurView
+{
+    /**
+     * 是否自适应选择在主线程还是子线程模糊，默认false，开启后{@link BlurView#setBlurAsync(boolean)}无效
+     * <p>
+     * 根据最近的模糊耗时预估本次的耗时，当前帧剩余的时间足够则在主线程模糊，否则在子线程模糊
+     *
+     * @param adaptive
+     */
+    void setBlurAdaptive(boolean adaptive);
+
+    /**
+     * 设置自适应模式下的决策和耗时监听
+     *
+     * @param listener
+     */
+    void setOnBlurModeListener(OnBlurModeListener listener);
+
+    interface OnBlurModeListener
+    {
+        /**
+         * 决定了本次模糊的方式
+         *
+         * @param async          true-子线程，false-主线程
+         * @param pixels         要模糊的像素数量(压缩后)，小于0表示未知
+         * @param estimatedNanos 预估耗时，小于0表示未知
+         * @param budgetNanos    当前帧可以用来模糊的时间
+         */
+        void onBlurModeDecided(boolean async, int pixels, long estimatedNanos, long budgetNanos);
+
+        /**
+         * 模糊完成
+         *
+         * @param async     true-子线程，false-主线程
+         * @param pixels    模糊的像素数量(压缩后)
+         * @param costNanos 耗时，子线程模糊的时候包括排队和切换线程的时间
+         */
+        void onBlurFinished(boolean async, int pixels, long costNanos);
+    }
+}
@@ -0,0 +1,1069 @@
+package com.sd.lib.blur.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.sd.lib.blur.api.BlurApi;
+import com.sd.lib.blur.api.BlurApiFactory;
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.RetainedBlur;
+import com.sd.lib.blur.core.config.SimpleConfig;
+import com.sd.lib.blur.core.device.BlurQualityGovernor;
+import com.sd.lib.blur.core.memory.BlurMemory;
+import com.sd.lib.blur.core.memory.MemoryHolder;
+import com.sd.lib.blur.core.pool.BitmapPool;
+import com.sd.lib.blur.core.pool.BitmapPoolFactory;
+import com.sd.lib.blur.core.source.BlurSourceFactory;
+import com.sd.lib.blur.core.source.CapturedSource;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 同一个源上面的多个模糊层共享的模糊背景
+ * <p>
+ * 每次只捕获和模糊一次所有模糊层覆盖区域的并集，每个模糊层从同一个结果中绘制自己覆盖的部分，
+ * 模糊层需要和源在同一个父布局中，只能在主线程使用
+ */
+public class BlurBackdrop implements MemoryHolder
+{
+    private static final Map<View, List<BlurBackdrop>> BACKDROPS = new WeakHashMap<>();
+
+    /**
+     * 运动中压缩倍数放大的倍数，模糊半径按照同样的倍数缩小，模糊的范围基本不变
+     */
+    private static final int MOTION_SCALE = 2;
+    /**
+     * 两次变化的间隔小于这个值(毫秒)认为源在运动
+     */
+    private static final long MOTION_WINDOW = 100;
+    /**
+     * 最后一次变化之后超过这个时间(毫秒)认为源已经停止运动
+     */
+    private static final long MOTION_IDLE_DELAY = 200;
+
+    private final WeakReference<View> mSource;
+    private final BlurOptions mOptions;
+    private final BlurApi mBlurApi;
+    private final BlurQualityGovernor mQualityGovernor;
+    private final List<View> mOverlays = new ArrayList<>();
+    /**
+     * 每个模糊层自己的设置，共享的设置由所有模糊层的设置合并得到
+     */
+    private final Map<View, OverlaySettings> mOverlaySettings = new HashMap<>();
+    private int mBlurMaxRate;
+    private boolean mBlurAsync;
+    private boolean mBlurAdaptive;
+    private final AdaptiveBlurScheduler mScheduler = new AdaptiveBlurScheduler();
+
+    private final RetainedBlur mRetainedBlur = new RetainedBlur();
+    /**
+     * 后台缓冲，完整模糊的结果写入这里，完成后在主线程和{@link #mRetainedBlur}中的结果交换
+     */
+    private Bitmap mBackBuffer;
+    private Rect mBlurredRegion;
+    /**
+     * 上一次模糊的时候模糊层覆盖的区域，模糊层移动或者改变大小的时候需要重新模糊
+     */
+    private Rect mOverlayRegion;
+    private boolean mIsDrawingBlur;
+    private boolean mIsDrawnPosted;
+    private boolean mIsBlurring;
+    private boolean mBlurPending;
+    /**
+     * 显示的结果因为内存紧张被释放了，下次绘制的时候重新模糊
+     */
+    private boolean mIsTrimmed;
+
+    private final List<ScrollState> mScrollStates = new ArrayList<>();
+    private int mPendingScrollX;
+    private int mPendingScrollY;
+
+    private boolean mBlurChangeDetection = true;
+    private BlurOptions mContentOptions;
+    private long mContentHash;
+    private int mSkippedBlurCount;
+
+    private boolean mBlurMotionAdaptive;
+    private boolean mInMotion;
+    private long mLastChangeTime;
+
+    private final BlurGovernor mGovernor = new BlurGovernor(new BlurGovernor.Callback()
+    {
+        @Override
+        public void onBlur()
+        {
+            performBlur();
+        }
+    });
+
+    private BlurBackdrop(View source, BlurOptions options)
+    {
+        mSource = new WeakReference<>(source);
+        mOptions = options;
+
+        mQualityGovernor = BlurQualityGovernor.getDefault(source.getContext());
+        mBlurApi = BlurApiFactory.create(source.getContext());
+        mBlurApi.setDestroyAfterBlur(false);
+        mBlurApi.setRadius(options.getRadius());
+        mBlurApi.setDownSampling(options.getDownSampling());
+        mBlurApi.setColor(options.getColor());
+        mBlurApi.setKeepDownSamplingSize(true);
+
+        BlurMemory.register(this);
+    }
+
+    /**
+     * 返回源和参数对应的模糊背景，不存在则创建，模糊层都移除之后会被释放
+     *
+     * @param source  要模糊的view
+     * @param options 模糊参数，只使用半径，压缩倍数和覆盖层颜色
+     * @return
+     */
+    public static BlurBackdrop obtain(View source, BlurOptions options)
+    {
+        if (source == null)
+            throw new IllegalArgumentException("source is null");
+
+        if (options == null)
+            throw new IllegalArgumentException("options is null");
+
+        options = options.withKeepDownSamplingSize(true).withRegion(null);
+
+        List<BlurBackdrop> list = BACKDROPS.get(source);
+        if (list == null)
+        {
+            list = new ArrayList<>(1);
+            BACKDROPS.put(source, list);
+        }
+
+        for (BlurBackdrop item : list)
+        {
+            if (item.mOptions.equals(options))
+                return item;
+        }
+
+        final BlurBackdrop backdrop = new BlurBackdrop(source, options);
+        list.add(backdrop);
+        return backdrop;
+    }
+
+    /**
+     * 返回要模糊的view
+     *
+     * @return
+     */
+    public View getSource()
+    {
+        return mSource.get();
+    }
+
+    /**
+     * 返回模糊参数
+     *
+     * @return
+     */
+    public BlurOptions getOptions()
+    {
+        return mOptions;
+    }
+
+    /**
+     * 添加模糊层
+     *
+     * @param overlay
+     */
+    public void addOverlay(View overlay)
+    {
+        if (overlay == null || mOverlays.contains(overlay))
+            return;
+
+        final View source = getSource();
+        if (source == null)
+            return;
+
+        if (mOverlays.isEmpty())
+        {
+            final ViewTreeObserver observer = source.getViewTreeObserver();
+            if (observer.isAlive())
+                observer.addOnPreDrawListener(mOnPreDrawListener);
+        }
+
+        mOverlays.add(overlay);
+        mOverlaySettings.put(overlay, new OverlaySettings());
+        mergeSettings();
+        blur();
+    }
+
+    /**
+     * 移除模糊层，全部移除之后释放资源
+     *
+     * @param overlay
+     */
+    public void removeOverlay(View overlay)
+    {
+        if (!mOverlays.remove(overlay))
+            return;
+
+        mOverlaySettings.remove(overlay);
+        if (mOverlays.isEmpty())
+            release();
+        else
+            mergeSettings();
+    }
+
+    /**
+     * 是否在子线程进行模糊，有一个模糊层开启就在子线程模糊
+     *
+     * @param overlay
+     * @param async
+     */
+    public void setBlurAsync(View overlay, boolean async)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.async = async;
+        mergeSettings();
+    }
+
+    /**
+     * {@link FBlurView#setBlurAdaptive(boolean)}，有一个模糊层开启就开启
+     *
+     * @param overlay
+     * @param adaptive
+     */
+    public void setBlurAdaptive(View overlay, boolean adaptive)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.adaptive = adaptive;
+        mergeSettings();
+    }
+
+    /**
+     * {@link FBlurView#setOnBlurModeListener(AdaptiveBlurView.OnBlurModeListener)}，每个模糊层的监听都会收到通知
+     *
+     * @param overlay
+     * @param listener
+     */
+    public void setOnBlurModeListener(View overlay, AdaptiveBlurView.OnBlurModeListener listener)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.listener = listener;
+        mergeSettings();
+    }
+
+    /**
+     * {@link FBlurView#setBlurMaxRate(int)}，使用所有模糊层中最小的限制
+     *
+     * @param overlay
+     * @param maxRate
+     */
+    public void setBlurMaxRate(View overlay, int maxRate)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.maxRate = maxRate;
+        mergeSettings();
+    }
+
+    /**
+     * {@link FBlurView#setBlurChangeDetection(boolean)}，有一个模糊层关闭就关闭
+     *
+     * @param overlay
+     * @param detection
+     */
+    public void setBlurChangeDetection(View overlay, boolean detection)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.changeDetection = detection;
+        mergeSettings();
+    }
+
+    /**
+     * {@link FBlurView#setBlurMotionAdaptive(boolean)}，所有模糊层都开启才开启
+     *
+     * @param overlay
+     * @param adaptive
+     */
+    public void setBlurMotionAdaptive(View overlay, boolean adaptive)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.motionAdaptive = adaptive;
+        mergeSettings();
+    }
+
+    /**
+     * {@link FBlurView#setBlurScrollView(View)}，所有模糊层设置的滚动view都会被检测
+     *
+     * @param overlay
+     * @param scrollView
+     */
+    public void setBlurScrollView(View overlay, View scrollView)
+    {
+        final OverlaySettings settings = mOverlaySettings.get(overlay);
+        if (settings == null)
+            return;
+
+        settings.scrollView = scrollView == null ? null : new WeakReference<>(scrollView);
+        mergeSettings();
+    }
+
+    /**
+     * 合并所有模糊层的设置
+     */
+    private void mergeSettings()
+    {
+        boolean async = false;
+        boolean adaptive = false;
+        boolean hasListener = false;
+        int maxRate = 0;
+        boolean changeDetection = true;
+        boolean motionAdaptive = !mOverlaySettings.isEmpty();
+        final List<View> scrollViews = new ArrayList<>();
+
+        for (OverlaySettings item : mOverlaySettings.values())
+        {
+            async |= item.async;
+            adaptive |= item.adaptive;
+            hasListener |= item.listener != null;
+            if (item.maxRate > 0)
+                maxRate = maxRate > 0 ? Math.min(maxRate, item.maxRate) : item.maxRate;
+            changeDetection &= item.changeDetection;
+            motionAdaptive &= item.motionAdaptive;
+
+            final View scrollView = item.scrollView == null ? null : item.scrollView.get();
+            if (scrollView != null && !scrollViews.contains(scrollView))
+                scrollViews.add(scrollView);
+        }
+
+        mBlurAsync = async;
+        mBlurAdaptive = adaptive;
+        // 自适应模式下剩余时间不够会在子线程模糊，不需要推迟到下一帧
+        mGovernor.setSync(!async && !adaptive);
+        mScheduler.setListener(hasListener ? mModeListener : null);
+        mBlurMaxRate = maxRate;
+
+        if (mBlurChangeDetection != changeDetection)
+        {
+            mBlurChangeDetection = changeDetection;
+            mContentOptions = null;
+        }
+
+        if (mBlurMotionAdaptive != motionAdaptive)
+        {
+            mBlurMotionAdaptive = motionAdaptive;
+            if (!motionAdaptive)
+                onMotionIdle();
+        }
+
+        mergeScrollViews(scrollViews);
+    }
+
+    /**
+     * 更新检测的滚动view，已经在检测的view保留原来记录的滚动位置
+     */
+    private void mergeScrollViews(List<View> scrollViews)
+    {
+        final List<ScrollState> states = new ArrayList<>(scrollViews.size());
+        for (View view : scrollViews)
+        {
+            ScrollState state = null;
+            for (ScrollState item : mScrollStates)
+            {
+                if (item.view.get() == view)
+                {
+                    state = item;
+                    break;
+                }
+            }
+            states.add(state != null ? state : new ScrollState(view));
+        }
+
+        mScrollStates.clear();
+        mScrollStates.addAll(states);
+    }
+
+    private final AdaptiveBlurView.OnBlurModeListener mModeListener = new AdaptiveBlurView.OnBlurModeListener()
+    {
+        @Override
+        public void onBlurModeDecided(boolean async, int pixels, long estimatedNanos, long budgetNanos)
+        {
+            for (OverlaySettings item : new ArrayList<>(mOverlaySettings.values()))
+            {
+                if (item.listener != null)
+                    item.listener.onBlurModeDecided(async, pixels, estimatedNanos, budgetNanos);
+            }
+        }
+
+        @Override
+        public void onBlurFinished(boolean async, int pixels, long costNanos)
+        {
+            for (OverlaySettings item : new ArrayList<>(mOverlaySettings.values()))
+            {
+                if (item.listener != null)
+                    item.listener.onBlurFinished(async, pixels, costNanos);
+            }
+        }
+    };
+
+    /**
+     * 返回因为内容没有变化而跳过的模糊次数
+     *
+     * @return
+     */
+    public int getSkippedBlurCount()
+    {
+        return mSkippedBlurCount;
+    }
+
+    /**
+     * {@link FBlurView#invalidateBlur(Rect)}
+     *
+     * @param dirty 源的坐标系
+     */
+    public void invalidateBlur(Rect dirty)
+    {
+        mRetainedBlur.invalidate(dirty);
+    }
+
+    /**
+     * {@link FBlurView#notifyBlurSourceScrolled(int, int)}，同一次滚动只需要通知一次
+     *
+     * @param dx
+     * @param dy
+     */
+    public void notifyBlurSourceScrolled(int dx, int dy)
+    {
+        mPendingScrollX += dx;
+        mPendingScrollY += dy;
+    }
+
+    private final ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener()
+    {
+        @Override
+        public boolean onPreDraw()
+        {
+            final View source = getSource();
+            if (source != null && isSourceChanged(source))
+            {
+                // 模糊层刷新引起的回调不算源的变化
+                if (mBlurMotionAdaptive && !mIsDrawingBlur)
+                    onSourceMotion(source);
+                blur();
+            }
+            return true;
+        }
+    };
+
+    /**
+     * 源从上一次绘制之后是否发生了变化，源没有变化的时候不需要重新模糊
+     *
+     * @param source
+     * @return
+     */
+    private boolean isSourceChanged(View source)
+    {
+        if (mPendingScrollX != 0 || mPendingScrollY != 0)
+            return true;
+
+        // 源没有变化，但是模糊层移动了或者改变了大小
+        final Rect overlayRegion = getOverlayRegion(source);
+        if (overlayRegion == null ? mOverlayRegion != null : !overlayRegion.equals(mOverlayRegion))
+            return true;
+
+        if (Build.VERSION.SDK_INT >= 21)
+            return source.isDirty();
+
+        return true;
+    }
+
+    /**
+     * 源发生了变化，和上一次变化的间隔很短则认为源在运动，停止变化一段时间后用原来的参数重新模糊
+     *
+     * @param source
+     */
+    private void onSourceMotion(View source)
+    {
+        final long now = SystemClock.uptimeMillis();
+        mInMotion = mLastChangeTime > 0 && now - mLastChangeTime < MOTION_WINDOW;
+        mLastChangeTime = now;
+
+        source.removeCallbacks(mMotionIdleRunnable);
+        source.postDelayed(mMotionIdleRunnable, MOTION_IDLE_DELAY);
+    }
+
+    private final Runnable mMotionIdleRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            onMotionIdle();
+        }
+    };
+
+    private void onMotionIdle()
+    {
+        final View source = getSource();
+        if (source != null)
+            source.removeCallbacks(mMotionIdleRunnable);
+
+        mLastChangeTime = 0;
+        if (!mInMotion)
+            return;
+
+        mInMotion = false;
+        // 运动中的结果质量较低，停止后重新模糊一次
+        blur();
+    }
+
+    /**
+     * 检查源的内容是否滚动了，如果滚动了则平移保留的结果
+     *
+     * @return true-滚动了并且保留的结果已经平移
+     */
+    private boolean checkSourceScroll()
+    {
+        int dx = mPendingScrollX;
+        int dy = mPendingScrollY;
+        mPendingScrollX = 0;
+        mPendingScrollY = 0;
+
+        for (ScrollState item : mScrollStates)
+        {
+            final View scrollView = item.view.get();
+            if (scrollView == null)
+                continue;
+
+            final int scrollX = scrollView.getScrollX();
+            final int scrollY = scrollView.getScrollY();
+            dx += scrollX - item.scrollX;
+            dy += scrollY - item.scrollY;
+            item.scrollX = scrollX;
+            item.scrollY = scrollY;
+        }
+
+        if (dx == 0 && dy == 0)
+            return false;
+
+        final Bitmap front = mRetainedBlur.getResult();
+        final boolean shifted = mRetainedBlur.shift(-dx, -dy, mBackBuffer);
+        final Bitmap newFront = mRetainedBlur.getResult();
+        if (shifted && newFront != front)
+        {
+            // 原来的结果在模糊层重绘之前还在显示，作为后台缓冲保留
+            swapBuffers(front, newFront);
+            invalidateOverlays();
+        }
+        return shifted;
+    }
+
+    /**
+     * 请求模糊
+     */
+    public void blur()
+    {
+        // 设备发热或者省电的时候降低模糊的频率
+        mGovernor.setMaxRate(mQualityGovernor.adjustMaxRate(mBlurMaxRate));
+        mGovernor.request();
+    }
+
+    private void performBlur()
+    {
+        if (mOverlays.isEmpty())
+            return;
+
+        if (mIsDrawingBlur)
+        {
+            /**
+             * 模糊层刷新也会触发源的OnPreDrawListener，低版本无法判断源是否发生了变化，直接忽略，
+             * 高版本只有源变化了才会走到这里，等绘制结束后再模糊
+             */
+            if (Build.VERSION.SDK_INT >= 21)
+                mBlurPending = true;
+            return;
+        }
+
+        if (mIsBlurring)
+        {
+            // 上一次的异步模糊还未完成，完成后再模糊
+            mBlurPending = true;
+            return;
+        }
+
+        final View source = getSource();
+        if (source == null)
+        {
+            release();
+            return;
+        }
+
+        // 运动中用更大的压缩倍数和更小的模糊半径，停止后再用原来的参数模糊
+        mBlurApi.setDownSampling(mInMotion ? mOptions.getDownSampling() * MOTION_SCALE : mOptions.getDownSampling());
+        mBlurApi.setRadius(mInMotion ? Math.max(1, mOptions.getRadius() / MOTION_SCALE) : mOptions.getRadius());
+
+        // 设备发热或者省电的时候压缩倍数会被放大，按照实际的压缩倍数对齐区域
+        BlurApi.Invoker invoker = mBlurApi.blur(source);
+        // 记录这一次模糊时模糊层的位置，用来判断模糊层是否移动了
+        mOverlayRegion = getOverlayRegion(source);
+        final Rect region = getBlurRegion(source, invoker.options().getDownSampling());
+        if (region == null)
+            return;
+
+        invoker = invoker.region(region);
+        final BlurOptions options = invoker.options();
+        final int sourceWidth = source.getWidth();
+        final int sourceHeight = source.getHeight();
+
+        final boolean scrolled = checkSourceScroll();
+        if (scrolled && mIsDrawingBlur)
+        {
+            // 平移后的结果显示之后再模糊新露出的区域，在此之前后台缓冲还在显示，不能写入
+            mBlurPending = true;
+            return;
+        }
+        if (mRetainedBlur.isValid(sourceWidth, sourceHeight, options))
+        {
+            // 滚动的距离不足一个压缩像素，不需要更新
+            if (scrolled && !mRetainedBlur.hasDirty())
+                return;
+        }
+
+        if (mRetainedBlur.hasDirty() && mRetainedBlur.isValid(sourceWidth, sourceHeight, options))
+        {
+            final Rect patchRegion = mRetainedBlur.takePatchRegion();
+            if (patchRegion == null)
+                return;
+
+            // 局部更新之后保留的结果和上一次捕获的内容不再对应
+            mContentOptions = null;
+
+            final int downSampling = options.getDownSampling();
+            final Bitmap patchOutput = BitmapPoolFactory.getDefault().get(patchRegion.width() / downSampling,
+                    patchRegion.height() / downSampling, Bitmap.Config.ARGB_8888);
+            final BlurApi.Invoker patchInvoker = invoker.region(patchRegion).output(patchOutput);
+            final int pixels = patchOutput.getWidth() * patchOutput.getHeight();
+            final long start = System.nanoTime();
+            if (isBlurAsync(pixels))
+            {
+                final BlurOptions patchOptions = patchInvoker.options();
+                mIsBlurring = true;
+                patchInvoker.async().into(new BlurApi.Target()
+                {
+                    @Override
+                    public void onBlurred(Bitmap bitmap)
+                    {
+                        mIsBlurring = false;
+                        // 失败或者取消的时候为null，applyPatch会继续等待中的模糊
+                        if (bitmap != null)
+                            recordBlurCost(true, pixels, start);
+                        applyPatch(bitmap, patchOptions);
+                    }
+                });
+            } else
+            {
+                final Bitmap bitmap = patchInvoker.bitmap();
+                recordBlurCost(false, pixels, start);
+                applyPatch(bitmap, patchInvoker.options());
+            }
+            return;
+        }
+
+        if (!mBlurChangeDetection)
+        {
+            performFullBlur(invoker, sourceWidth, sourceHeight, null);
+            return;
+        }
+
+        // 先在主线程捕获压缩后的内容，内容没有变化则跳过模糊
+        final CapturedSource captured = CapturedSource.capture(BlurSourceFactory.create(source), options);
+        if (captured == null)
+            return;
+
+        final long contentHash = captured.getContentHash();
+        if (options.equals(mContentOptions)
+                && contentHash == mContentHash
+                && mRetainedBlur.isValid(sourceWidth, sourceHeight, options))
+        {
+            captured.release();
+            mSkippedBlurCount++;
+            return;
+        }
+
+        final BlurApi.Invoker capturedInvoker = mBlurApi.blur(captured).region(region);
+        if (!capturedInvoker.options().equals(options))
+        {
+            // 捕获之后质量等级变化了，重新模糊
+            captured.release();
+            blur();
+            return;
+        }
+
+        mContentOptions = options;
+        mContentHash = contentHash;
+        performFullBlur(capturedInvoker, sourceWidth, sourceHeight, captured);
+    }
+
+    private void performFullBlur(BlurApi.Invoker invoker, final int sourceWidth, final int sourceHeight, final CapturedSource captured)
+    {
+        invoker = invoker.output(mBackBuffer);
+        final BlurOptions options = invoker.options();
+        final Rect region = options.getRegion();
+        final int downSampling = options.getDownSampling();
+        final int pixels = (region.width() / downSampling) * (region.height() / downSampling);
+        final long start = System.nanoTime();
+        if (isBlurAsync(pixels))
+        {
+            mIsBlurring = true;
+            invoker.async().into(new BlurApi.Target()
+            {
+                @Override
+                public void onBlurred(Bitmap bitmap)
+                {
+                    mIsBlurring = false;
+                    // 失败或者取消的时候为null，applyBlur会继续等待中的模糊
+                    if (bitmap != null)
+                        recordBlurCost(true, pixels, start);
+                    if (captured != null)
+                        captured.release();
+                    applyBlur(bitmap, options, sourceWidth, sourceHeight);
+                }
+            });
+        } else
+        {
+            final Bitmap bitmap = invoker.bitmap();
+            recordBlurCost(false, pixels, start);
+            if (captured != null)
+                captured.release();
+            applyBlur(bitmap, options, sourceWidth, sourceHeight);
+        }
+    }
+
+    private boolean isBlurAsync(int pixels)
+    {
+        if (mBlurAdaptive)
+            return mScheduler.isAsync(pixels);
+        return mBlurAsync;
+    }
+
+    private void recordBlurCost(boolean async, int pixels, long start)
+    {
+        if (mBlurAdaptive)
+            mScheduler.record(async, pixels, System.nanoTime() - start);
+    }
+
+    /**
+     * 返回所有模糊层在源中覆盖区域的并集(源的坐标系)，只模糊这个区域
+     *
+     * @param source
+     * @param downSampling
+     * @return null-模糊层和源没有交集
+     */
+    private Rect getBlurRegion(View source, int downSampling)
+    {
+        final Rect union = getOverlayRegion(source);
+        if (union == null)
+            return null;
+
+        return SimpleConfig.alignRegion(union, source.getWidth(), source.getHeight(), downSampling);
+    }
+
+    /**
+     * 返回所有模糊层在源中覆盖区域的并集(源的坐标系)，没有对齐
+     *
+     * @param source
+     * @return null-没有可见的模糊层
+     */
+    private Rect getOverlayRegion(View source)
+    {
+        Rect union = null;
+        for (View overlay : mOverlays)
+        {
+            if (overlay.getWidth() <= 0 || overlay.getHeight() <= 0)
+                continue;
+
+            final int left = Math.round(overlay.getX() - source.getX());
+            final int top = Math.round(overlay.getY() - source.getY());
+            if (union == null)
+                union = new Rect(left, top, left + overlay.getWidth(), top + overlay.getHeight());
+            else
+                union.union(left, top, left + overlay.getWidth(), top + overlay.getHeight());
+        }
+        return union;
+    }
+
+    private void applyBlur(Bitmap bitmap, BlurOptions options, int sourceWidth, int sourceHeight)
+    {
+        if (mOverlays.isEmpty())
+        {
+            if (bitmap != null)
+                BitmapPoolFactory.getDefault().put(bitmap);
+            return;
+        }
+
+        if (bitmap == null)
+        {
+            runPendingBlur();
+            return;
+        }
+
+        final Bitmap front = mRetainedBlur.getResult();
+        mRetainedBlur.setResult(bitmap, options, sourceWidth, sourceHeight);
+        swapBuffers(front, mRetainedBlur.getResult());
+
+        mBlurredRegion = mRetainedBlur.getRegion();
+        invalidateOverlays();
+    }
+
+    private void applyPatch(Bitmap bitmap, BlurOptions options)
+    {
+        if (bitmap == null)
+        {
+            runPendingBlur();
+            return;
+        }
+
+        final boolean patched = mRetainedBlur.patch(bitmap, options);
+        BitmapPoolFactory.getDefault().put(bitmap);
+        if (!patched)
+        {
+            runPendingBlur();
+            return;
+        }
+
+        invalidateOverlays();
+    }
+
+    private void invalidateOverlays()
+    {
+        if (mOverlays.isEmpty())
+            return;
+
+        mIsDrawingBlur = true;
+        for (View overlay : mOverlays)
+        {
+            overlay.invalidate();
+        }
+    }
+
+    /**
+     * 新的结果已经显示，原来显示的结果作为下一次模糊的后台缓冲
+     *
+     * @param oldFront 原来显示的结果
+     * @param newFront 新显示的结果
+     */
+    private void swapBuffers(Bitmap oldFront, Bitmap newFront)
+    {
+        final BitmapPool pool = BitmapPoolFactory.getDefault();
+        if (mBackBuffer != null && mBackBuffer != newFront)
+            pool.put(mBackBuffer);
+
+        mBackBuffer = oldFront == newFront ? null : oldFront;
+    }
+
+    private void runPendingBlur()
+    {
+        if (mBlurPending)
+        {
+            mBlurPending = false;
+            blur();
+        }
+    }
+
+    /**
+     * 绘制模糊层覆盖的部分
+     *
+     * @param canvas
+     * @param overlay
+     * @return false-还没有模糊结果
+     */
+    public boolean draw(Canvas canvas, View overlay)
+    {
+        final View source = getSource();
+        if (source == null)
+            return false;
+
+        final Bitmap bitmap = mRetainedBlur.getResult();
+        if (bitmap == null)
+        {
+            if (mIsTrimmed)
+            {
+                mIsTrimmed = false;
+                blur();
+            }
+            return false;
+        }
+
+        final int scale = mRetainedBlur.getOptions().getDownSampling();
+        final Rect region = mBlurredRegion;
+
+        canvas.save();
+        canvas.translate(source.getX() - overlay.getX() + region.left, source.getY() - overlay.getY() + region.top);
+        canvas.scale(scale, scale);
+        canvas.drawBitmap(bitmap, 0, 0, null);
+        canvas.restore();
+
+        if (mIsDrawingBlur && !mIsDrawnPosted)
+        {
+            // 所有模糊层在同一帧绘制，绘制结束后再处理等待中的模糊
+            mIsDrawnPosted = true;
+            overlay.post(mDrawnRunnable);
+        }
+        return true;
+    }
+
+    private final Runnable mDrawnRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            mIsDrawnPosted = false;
+            mIsDrawingBlur = false;
+            runPendingBlur();
+        }
+    };
+
+    @Override
+    public long getHeldBytes()
+    {
+        long bytes = 0;
+        final Bitmap front = mRetainedBlur.getResult();
+        if (front != null)
+            bytes += front.getByteCount();
+        if (mBackBuffer != null && !mBackBuffer.isRecycled())
+            bytes += mBackBuffer.getByteCount();
+        return bytes;
+    }
+
+    @Override
+    public void trimMemory(int level)
+    {
+        final BitmapPool pool = BitmapPoolFactory.getDefault();
+
+        // 异步模糊还在写入后台缓冲的时候不能释放
+        if (mBackBuffer != null && !mIsBlurring)
+        {
+            pool.put(mBackBuffer);
+            mBackBuffer = null;
+        }
+
+        if (level < BlurMemory.TRIM_LEVEL_HIDDEN || isOverlayShown())
+            return;
+
+        final Bitmap front = mRetainedBlur.getResult();
+        if (front == null)
+            return;
+
+        mRetainedBlur.reset();
+        mContentOptions = null;
+        pool.put(front);
+        mIsTrimmed = true;
+    }
+
+    private boolean isOverlayShown()
+    {
+        for (View overlay : mOverlays)
+        {
+            if (overlay.isShown())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 释放资源，从缓存中移除
+     */
+    private void release()
+    {
+        BlurMemory.unregister(this);
+        mOverlays.clear();
+        mOverlaySettings.clear();
+        mScrollStates.clear();
+        mBlurPending = false;
+        mIsDrawingBlur = false;
+        mGovernor.cancel();
+        mInMotion = false;
+        mLastChangeTime = 0;
+
+        final BitmapPool pool = BitmapPoolFactory.getDefault();
+        final Bitmap front = mRetainedBlur.getResult();
+        mRetainedBlur.reset();
+        if (front != null)
+            pool.put(front);
+
+        // 异步模糊还在写入后台缓冲的时候不能放回池中
+        if (mBackBuffer != null && !mIsBlurring)
+            pool.put(mBackBuffer);
+        mBackBuffer = null;
+        mIsBlurring = false;
+
+        mBlurApi.destroy();
+
+        final View source = getSource();
+        if (source != null)
+        {
+            source.removeCallbacks(mMotionIdleRunnable);
+
+            final ViewTreeObserver observer = source.getViewTreeObserver();
+            if (observer.isAlive())
+                observer.removeOnPreDrawListener(mOnPreDrawListener);
+
+            final List<BlurBackdrop> list = BACKDROPS.get(source);
+            if (list != null)
+            {
+                list.remove(this);
+                if (list.isEmpty())
+                    BACKDROPS.remove(source);
+            }
+        }
+    }
+
+    private static final class OverlaySettings
+    {
+        boolean async;
+        boolean adaptive;
+        AdaptiveBlurView.OnBlurModeListener listener;
+        int maxRate;
+        boolean changeDetection = true;
+        boolean motionAdaptive;
+        WeakReference<View> scrollView;
+    }
+
+    private static final class ScrollState
+    {
+        final WeakReference<View> view;
+        int scrollX;
+        int scrollY;
+
+        ScrollState(View view)
+        {
+            this.view = new WeakReference<>(view);
+            this.scrollX = view.getScrollX();
+            this.scrollY = view.getScrollY();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.sd.lib.blur.view;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * 控制动态模糊的频率
+ * <p>
+ * 1. 每秒最多模糊{@link #setMaxRate(int)}次，超出的请求合并到下一个允许的时间点执行，保证最后的状态会被模糊<br>
+ * 2. 同步模糊的时候，如果当前帧剩余的时间不够上一次模糊的耗时，则推迟到下一帧开始的时候执行
+ */
+class BlurGovernor
+{
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final Callback mCallback;
+    private int mMaxRate;
+    private boolean mSync = true;
+
+    private long mLastBlurTime;
+    private long mLastBlurCost;
+
+    private final FrameClock mFrameClock = new FrameClock();
+
+    private boolean mScheduled;
+    private Handler mHandler;
+    private FrameScheduler mFrameScheduler;
+
+    public BlurGovernor(Callback callback)
+    {
+        if (callback == null)
+            throw new IllegalArgumentException("callback is null");
+        mCallback = callback;
+    }
+
+    /**
+     * 设置每秒最多模糊几次
+     *
+     * @param maxRate 小于等于0-不限制
+     */
+    public void setMaxRate(int maxRate)
+    {
+        mMaxRate = maxRate;
+    }
+
+    public int getMaxRate()
+    {
+        return mMaxRate;
+    }
+
+    /**
+     * 设置是否同步模糊，同步模糊的时候才需要检查帧的剩余时间
+     *
+     * @param sync
+     */
+    public void setSync(boolean sync)
+    {
+        mSync = sync;
+    }
+
+    /**
+     * 请求模糊
+     */
+    public void request()
+    {
+        if (mScheduled)
+            return;
+
+        if (mSync)
+            mFrameClock.track();
+
+        final long now = System.nanoTime();
+        if (mMaxRate > 0)
+        {
+            final long wait = mLastBlurTime + NANOS_PER_SECOND / mMaxRate - now;
+            if (wait > 0)
+            {
+                schedule(wait);
+                return;
+            }
+        }
+
+        if (mSync && mLastBlurCost > 0)
+        {
+            if (mFrameClock.isInFrame() && mFrameClock.getRemainingNanos() < mLastBlurCost)
+            {
+                // 当前帧剩余的时间不够，到下一帧开始的时候执行
+                schedule(0);
+                return;
+            }
+        }
+
+        perform();
+    }
+
+    /**
+     * 取消已经安排的模糊
+     */
+    public void cancel()
+    {
+        if (!mScheduled)
+            return;
+
+        mScheduled = false;
+        if (mFrameScheduler != null)
+            mFrameScheduler.cancel();
+        if (mHandler != null)
+            mHandler.removeCallbacks(mScheduledRunnable);
+    }
+
+    private void perform()
+    {
+        final long start = System.nanoTime();
+        mLastBlurTime = start;
+        mCallback.onBlur();
+
+        if (mSync)
+            mLastBlurCost = System.nanoTime() - start;
+    }
+
+    private void schedule(long delayNanos)
+    {
+        mScheduled = true;
+        if (Build.VERSION.SDK_INT >= 16)
+        {
+            if (mFrameScheduler == null)
+                mFrameScheduler = new FrameScheduler();
+            mFrameScheduler.schedule(delayNanos);
+        } else
+        {
+            if (mHandler == null)
+                mHandler = new Handler(Looper.getMainLooper());
+            mHandler.postDelayed(mScheduledRunnable, delayNanos / 1000000);
+        }
+    }
+
+    private final Runnable mScheduledRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            if (!mScheduled)
+                return;
+
+            mScheduled = false;
+            perform();
+        }
+    };
+
+    /**
+     * API 16及以上才有{@link Choreographer}
+     */
+    private final class FrameScheduler
+    {
+        private final Choreographer.FrameCallback mScheduleCallback = new Choreographer.FrameCallback()
+        {
+            @Override
+            public void doFrame(long frameTimeNanos)
+            {
+                mScheduledRunnable.run();
+            }
+        };
+
+        public void schedule(long delayNanos)
+        {
+            Choreographer.getInstance().postFrameCallbackDelayed(mScheduleCallback, delayNanos / 1000000);
+        }
+
+        public void cancel()
+        {
+            Choreographer.getInstance().removeFrameCallback(mScheduleCallback);
+        }
+    }
+
+    public interface Callback
+    {
+        /**
+         * 执行模糊
+         */
+        void onBlur();
+    }
+}
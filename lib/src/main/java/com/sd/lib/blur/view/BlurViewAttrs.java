@@ -13,6 +13,9 @@ class BlurViewAttrs
     private int mBlurDownSampling;
     private int mBlurColor;
     private boolean mBlurAsync;
+    private boolean mBlurAdaptive;
+    private int mBlurMaxRate;
+    private boolean mBlurMotionAdaptive;
 
     private BlurViewAttrs(Context context, AttributeSet attrs)
     {
@@ -20,6 +23,7 @@ class BlurViewAttrs
         mBlurRadius = settings.getRadius();
         mBlurDownSampling = settings.getDownSampling();
         mBlurColor = settings.getColor();
+        mBlurMaxRate = settings.getMaxRate();
 
         if (attrs != null)
         {
@@ -29,6 +33,9 @@ class BlurViewAttrs
             mBlurDownSampling = a.getInt(R.styleable.lib_blur_blur_view_blurDownSampling, mBlurDownSampling);
             mBlurColor = a.getInt(R.styleable.lib_blur_blur_view_blurColor, mBlurColor);
             mBlurAsync = a.getBoolean(R.styleable.lib_blur_blur_view_blurAsync, mBlurAsync);
+            mBlurAdaptive = a.getBoolean(R.styleable.lib_blur_blur_view_blurAdaptive, mBlurAdaptive);
+            mBlurMaxRate = a.getInt(R.styleable.lib_blur_blur_view_blurMaxRate, mBlurMaxRate);
+            mBlurMotionAdaptive = a.getBoolean(R.styleable.lib_blur_blur_view_blurMotionAdaptive, mBlurMotionAdaptive);
 
             a.recycle();
         }
@@ -58,4 +65,19 @@ class BlurViewAttrs
     {
         return mBlurAsync;
     }
+
+    public boolean isBlurAdaptive()
+    {
+        return mBlurAdaptive;
+    }
+
+    public int getBlurMaxRate()
+    {
+        return mBlurMaxRate;
+    }
+
+    public boolean isBlurMotionAdaptive()
+    {
+        return mBlurMotionAdaptive;
+    }
 }
@@ -5,7 +5,7 @@ import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 import android.widget.ImageView;
 
-public class FBlurImageView extends ImageView implements BlurView
+public class FBlurImageView extends ImageView implements AdaptiveBlurView
 {
     private FBlurImageViewProxy mProxy;
 
@@ -55,6 +55,18 @@ public class FBlurImageView extends ImageView implements BlurView
         getProxy().setBlurAsync(async);
     }
 
+    @Override
+    public final void setBlurAdaptive(boolean adaptive)
+    {
+        getProxy().setBlurAdaptive(adaptive);
+    }
+
+    @Override
+    public final void setOnBlurModeListener(OnBlurModeListener listener)
+    {
+        getProxy().setOnBlurModeListener(listener);
+    }
+
     @Override
     public final void blur()
     {
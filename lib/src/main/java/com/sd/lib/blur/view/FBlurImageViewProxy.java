@@ -11,16 +11,24 @@ import android.widget.ImageView;
 
 import com.sd.lib.blur.api.BlurApi;
 import com.sd.lib.blur.api.BlurApiFactory;
+import com.sd.lib.blur.core.source.BlurSource;
+import com.sd.lib.blur.core.source.BlurSourceFactory;
 
-public abstract class FBlurImageViewProxy implements BlurView
+public abstract class FBlurImageViewProxy implements AdaptiveBlurView
 {
     private final Context mContext;
     private boolean mHasInit;
 
     private BlurApi mBlurApi;
     private boolean mBlurAsync;
+    private boolean mBlurAdaptive;
+    private AdaptiveBlurScheduler mScheduler;
 
     private Drawable mOriginalDrawable;
+    /**
+     * 通过资源id设置的图片，模糊的时候按照压缩倍数采样解码
+     */
+    private BlurSource mOriginalSource;
     private boolean mIsAttachedToWindow;
 
     public FBlurImageViewProxy(Context context)
@@ -40,6 +48,7 @@ public abstract class FBlurImageViewProxy implements BlurView
         setBlurDownSampling(viewAttrs.getBlurDownSampling());
         setBlurColor(viewAttrs.getBlurColor());
         setBlurAsync(viewAttrs.isBlurAsync());
+        setBlurAdaptive(viewAttrs.isBlurAdaptive());
 
         if (imageView.getBackground() == null)
             imageView.setBackgroundColor(viewAttrs.getBlurColor());
@@ -100,21 +109,53 @@ public abstract class FBlurImageViewProxy implements BlurView
         mBlurAsync = async;
     }
 
+    @Override
+    public final void setBlurAdaptive(boolean adaptive)
+    {
+        mBlurAdaptive = adaptive;
+    }
+
+    @Override
+    public final void setOnBlurModeListener(OnBlurModeListener listener)
+    {
+        getScheduler().setListener(listener);
+    }
+
+    private AdaptiveBlurScheduler getScheduler()
+    {
+        if (mScheduler == null)
+            mScheduler = new AdaptiveBlurScheduler();
+        return mScheduler;
+    }
+
     @Override
     public final void blur()
     {
-        setImageDrawableOverride(mOriginalDrawable);
+        if (mOriginalSource != null)
+            blurSource(mOriginalSource, null);
+        else
+            setImageDrawableOverride(mOriginalDrawable);
     }
 
     /**
-     * 覆盖ImageView的此方法
+     * 覆盖ImageView的此方法，位图资源不会完整解码，而是在模糊的时候按照压缩倍数采样解码
      *
      * @param resId
      */
     public void setImageResourceOverride(int resId)
     {
-        final Drawable drawable = mContext.getResources().getDrawable(resId);
-        setImageDrawableOverride(drawable);
+        final BlurSource source = BlurSourceFactory.createResource(mContext, resId);
+        if (source.getWidth() <= 0 || source.getHeight() <= 0)
+        {
+            // 不是位图资源或者是.9图，按照原来的方式加载
+            final Drawable drawable = mContext.getResources().getDrawable(resId);
+            setImageDrawableOverride(drawable);
+            return;
+        }
+
+        mOriginalDrawable = null;
+        mOriginalSource = source;
+        blurSource(source, null);
     }
 
     /**
@@ -125,7 +166,10 @@ public abstract class FBlurImageViewProxy implements BlurView
     public void setImageDrawableOverride(Drawable drawable)
     {
         if (!(drawable instanceof BlurredBitmapDrawable))
+        {
             mOriginalDrawable = drawable;
+            mOriginalSource = null;
+        }
 
         if (drawable == null || drawable instanceof BlurredBitmapDrawable)
             setImageDrawableSuper(drawable);
@@ -144,22 +188,63 @@ public abstract class FBlurImageViewProxy implements BlurView
         if (drawable instanceof BlurredBitmapDrawable)
             throw new IllegalArgumentException("can not blur BlurredBitmapDrawable");
 
-        if (mBlurAsync)
+        blurSource(BlurSourceFactory.create(drawable), drawable);
+    }
+
+    /**
+     * @param source
+     * @param drawable 源对应的Drawable，用来计算像素数量，null-从源读取
+     */
+    private void blurSource(BlurSource source, Drawable drawable)
+    {
+        if (!mIsAttachedToWindow)
+            return;
+
+        final int pixels = drawable == null ? getBlurPixels(source.getWidth(), source.getHeight()) : getBlurPixels(drawable);
+        final boolean async = mBlurAdaptive ? getScheduler().isAsync(pixels) : mBlurAsync;
+        final long start = System.nanoTime();
+
+        if (async)
         {
-            getBlurApi().blur(drawable).async().into(new BlurApi.Target()
+            getBlurApi().blur(source).async().into(new BlurApi.Target()
             {
                 @Override
                 public void onBlurred(Bitmap bitmap)
                 {
+                    if (mBlurAdaptive && bitmap != null)
+                        getScheduler().record(true, pixels, System.nanoTime() - start);
                     applyBlur(bitmap);
                 }
             });
         } else
         {
-            applyBlur(getBlurApi().blur(drawable).bitmap());
+            final Bitmap bitmap = getBlurApi().blur(source).bitmap();
+            if (mBlurAdaptive)
+                getScheduler().record(false, pixels, System.nanoTime() - start);
+            applyBlur(bitmap);
         }
     }
 
+    /**
+     * 返回要模糊的像素数量(压缩后)
+     *
+     * @param drawable
+     * @return 小于0表示未知
+     */
+    private int getBlurPixels(Drawable drawable)
+    {
+        return getBlurPixels(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+    }
+
+    private int getBlurPixels(int width, int height)
+    {
+        if (width <= 0 || height <= 0)
+            return -1;
+
+        final int downSampling = getBlurApi().settings().getDownSampling();
+        return (width / downSampling) * (height / downSampling);
+    }
+
     private void applyBlur(Bitmap bitmap)
     {
         if (bitmap != null)
@@ -5,7 +5,7 @@ import android.util.AttributeSet;
 import android.view.View;
 import android.widget.FrameLayout;
 
-public class FBlurLayout extends FrameLayout implements BlurView
+public class FBlurLayout extends FrameLayout implements AdaptiveBlurView
 {
     private final FBlurView mBlurView;
 
@@ -39,23 +39,38 @@ public class FBlurLayout extends FrameLayout implements BlurView
         mBlurView.setBlurAsync(async);
     }
 
+    @Override
+    public final void setBlurAdaptive(boolean adaptive)
+    {
+        mBlurView.setBlurAdaptive(adaptive);
+    }
+
+    @Override
+    public final void setOnBlurModeListener(OnBlurModeListener listener)
+    {
+        mBlurView.setOnBlurModeListener(listener);
+    }
+
     @Override
     public final void blur()
     {
         mBlurView.blur();
     }
 
+    /**
+     * 第一个子view作为模糊的源，模糊层放在它的上面，之后添加的子view显示在模糊层上面
+     *
+     * @param child
+     */
     @Override
     public void onViewAdded(View child)
     {
         super.onViewAdded(child);
-        if (getChildCount() > 2)
-            throw new RuntimeException("can not add child more");
 
-        if (child != mBlurView)
+        if (child != mBlurView && mBlurView.getBlurSource() == null)
         {
             mBlurView.setBlurSource(child);
-            addView(mBlurView);
+            addView(mBlurView, indexOfChild(child) + 1);
         }
     }
 
@@ -64,7 +79,7 @@ public class FBlurLayout extends FrameLayout implements BlurView
     {
         super.onViewRemoved(child);
 
-        if (child != mBlurView)
+        if (child != mBlurView && child == mBlurView.getBlurSource())
         {
             mBlurView.setBlurSource(null);
             removeView(mBlurView);
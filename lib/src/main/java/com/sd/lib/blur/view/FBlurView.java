@@ -1,41 +1,78 @@
 package com.sd.lib.blur.view;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.ViewTreeObserver;
+import android.view.animation.AnimationUtils;
 
-import com.sd.lib.blur.api.BlurApi;
-import com.sd.lib.blur.api.BlurApiFactory;
+import com.sd.lib.blur.core.Blur;
+import com.sd.lib.blur.core.BlurFactory;
+import com.sd.lib.blur.core.BlurOptions;
+import com.sd.lib.blur.core.pyramid.BlurPyramid;
+import com.sd.lib.blur.core.source.BlurSourceFactory;
 
 import java.lang.ref.WeakReference;
+import java.util.concurrent.Future;
 
-public class FBlurView extends View implements BlurView
+public class FBlurView extends View implements AdaptiveBlurView
 {
-    private final BlurApi mBlurApi;
+    private BlurOptions mOptions = BlurOptions.create().withKeepDownSamplingSize(true);
     private boolean mBlurAsync;
+    private boolean mBlurAdaptive;
+    private OnBlurModeListener mOnBlurModeListener;
+    private int mBlurMaxRate;
+    private boolean mBlurChangeDetection = true;
+    private boolean mBlurMotionAdaptive;
+    private WeakReference<View> mBlurScrollView;
 
     private WeakReference<View> mBlurSource;
-
-    private Bitmap mBitmapBlurred;
-    private boolean mIsDrawingBlur;
+    private BlurBackdrop mBackdrop;
     private boolean mIsAttachedToWindow;
 
+    /**
+     * 半径动画使用的模糊层级，动画结束后一直使用到新半径的模糊结果出来
+     */
+    private BlurPyramid mPyramid;
+    /**
+     * 正在模糊的层级，完成之前继续绘制原来的模糊结果
+     */
+    private Future<?> mPyramidTask;
+    /**
+     * 模糊层级使用，每次动画复用，避免重新选择模糊策略
+     */
+    private Blur mPyramidBlur;
+    private boolean mIsAnimatingRadius;
+    private int mAnimationFromRadius;
+    private int mAnimationToRadius;
+    private long mAnimationStartTime;
+    private long mAnimationDuration;
+    /**
+     * 动画结束后切换到新的半径，切换会重新绑定模糊背景，不能在绘制的过程中执行
+     */
+    private final Runnable mFinishRadiusAnimationRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            if (mPyramid != null)
+                setOptions(mOptions.withRadius(mAnimationToRadius));
+        }
+    };
+
     public FBlurView(Context context, AttributeSet attrs)
     {
         super(context, attrs);
 
-        mBlurApi = BlurApiFactory.create(getContext());
-        mBlurApi.setDestroyAfterBlur(false);
-        mBlurApi.setKeepDownSamplingSize(true);
-
         final BlurViewAttrs viewAttrs = BlurViewAttrs.parse(context, attrs);
         setBlurRadius(viewAttrs.getBlurRadius());
         setBlurDownSampling(viewAttrs.getBlurDownSampling());
         setBlurColor(viewAttrs.getBlurColor());
         setBlurAsync(viewAttrs.isBlurAsync());
+        setBlurAdaptive(viewAttrs.isBlurAdaptive());
+        setBlurMaxRate(viewAttrs.getBlurMaxRate());
+        setBlurMotionAdaptive(viewAttrs.isBlurMotionAdaptive());
     }
 
     /**
@@ -50,6 +87,8 @@ public class FBlurView extends View implements BlurView
 
     /**
      * 设置要模糊的view
+     * <p>
+     * 同一个源上面参数相同的多个模糊层共享同一个{@link BlurBackdrop}，只捕获和模糊一次
      *
      * @param source
      */
@@ -58,104 +97,292 @@ public class FBlurView extends View implements BlurView
         final View old = getBlurSource();
         if (old != source)
         {
-            if (old != null)
-            {
-                final ViewTreeObserver observer = old.getViewTreeObserver();
-                if (observer.isAlive())
-                    observer.removeOnPreDrawListener(mOnPreDrawListener);
-            }
-
             mBlurSource = source == null ? null : new WeakReference<>(source);
+            cancelBlurRadiusAnimation();
+            bindBackdrop();
+        }
+    }
 
-            if (source != null)
-            {
-                final ViewTreeObserver observer = source.getViewTreeObserver();
-                if (observer.isAlive())
-                    observer.addOnPreDrawListener(mOnPreDrawListener);
+    /**
+     * 返回当前使用的模糊背景
+     *
+     * @return null-未设置源或者未添加到窗口
+     */
+    public final BlurBackdrop getBlurBackdrop()
+    {
+        return mBackdrop;
+    }
 
-                blur();
-            } else
+    @Override
+    public final void setBlurRadius(int radius)
+    {
+        cancelBlurRadiusAnimation();
+        setOptions(mOptions.withRadius(radius));
+    }
+
+    /**
+     * 用动画把模糊半径改为指定的值
+     * <p>
+     * 开始的时候在主线程捕获一次源，在子线程用{@link BlurPyramid}模糊几个不同半径的层级，层级准备好之前继续显示原来的模糊结果，
+     * 动画过程中每一帧只混合相邻的层级，不再模糊，动画结束后按照新的半径模糊一次。动画过程中源的内容变化不会显示
+     *
+     * @param radius
+     * @param duration 动画时长(毫秒)
+     */
+    public final void animateBlurRadius(final int radius, final long duration)
+    {
+        final int fromRadius = mOptions.getRadius();
+        final View source = getBlurSource();
+        final Rect region = source == null ? null : getSourceRegion(source);
+        if (radius == fromRadius || duration <= 0 || !mIsAttachedToWindow || region == null)
+        {
+            setBlurRadius(radius);
+            return;
+        }
+
+        cancelBlurRadiusAnimation();
+
+        if (mPyramidBlur == null)
+        {
+            mPyramidBlur = BlurFactory.create(getContext());
+            mPyramidBlur.setDestroyAfterBlur(false);
+        }
+
+        final BlurOptions options = mOptions.withRadius(Math.max(fromRadius, radius)).withRegion(region);
+        mPyramidTask = BlurPyramid.createAsync(mPyramidBlur, BlurSourceFactory.create(source), options, new BlurPyramid.Callback()
+        {
+            @Override
+            public void onCreated(BlurPyramid pyramid)
             {
-                mBlurApi.destroy();
+                mPyramidTask = null;
+                if (pyramid == null)
+                {
+                    setBlurRadius(radius);
+                    return;
+                }
+
+                mPyramid = pyramid;
+                mIsAnimatingRadius = true;
+                mAnimationFromRadius = fromRadius;
+                mAnimationToRadius = radius;
+                mAnimationStartTime = AnimationUtils.currentAnimationTimeMillis();
+                mAnimationDuration = duration;
+                invalidate();
             }
-        }
+        });
+
+        if (mPyramidTask == null)
+            setBlurRadius(radius);
     }
 
-    private final ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener()
+    /**
+     * 取消半径动画，不改变当前的模糊半径
+     */
+    public final void cancelBlurRadiusAnimation()
     {
-        @Override
-        public boolean onPreDraw()
+        removeCallbacks(mFinishRadiusAnimationRunnable);
+        if (mPyramidTask != null)
         {
-            blur();
-            return true;
+            mPyramidTask.cancel(true);
+            mPyramidTask = null;
         }
-    };
 
-    @Override
-    public final void setBlurRadius(int radius)
+        mIsAnimatingRadius = false;
+        if (mPyramid != null)
+        {
+            mPyramid.release();
+            mPyramid = null;
+            invalidate();
+        }
+    }
+
+    /**
+     * 返回当前view覆盖的源区域(源的坐标系)
+     *
+     * @return null-没有覆盖源
+     */
+    private Rect getSourceRegion(View source)
     {
-        mBlurApi.setRadius(radius);
+        final int left = (int) (getX() - source.getX());
+        final int top = (int) (getY() - source.getY());
+        final Rect region = new Rect(left, top, left + getWidth(), top + getHeight());
+        if (!region.intersect(0, 0, source.getWidth(), source.getHeight()))
+            return null;
+        return region;
     }
 
     @Override
     public final void setBlurDownSampling(int downSampling)
     {
-        mBlurApi.setDownSampling(downSampling);
+        setOptions(mOptions.withDownSampling(downSampling));
     }
 
     @Override
     public final void setBlurColor(int color)
     {
-        mBlurApi.setColor(color);
+        setOptions(mOptions.withColor(color));
+    }
+
+    private void setOptions(BlurOptions options)
+    {
+        if (mOptions.equals(options))
+            return;
+
+        mOptions = options;
+        bindBackdrop();
     }
 
     @Override
     public final void setBlurAsync(boolean async)
     {
         mBlurAsync = async;
+        if (mBackdrop != null)
+            mBackdrop.setBlurAsync(this, async);
     }
 
     @Override
-    public final void blur()
+    public final void setBlurAdaptive(boolean adaptive)
     {
-        if (!mIsAttachedToWindow)
-            return;
+        mBlurAdaptive = adaptive;
+        if (mBackdrop != null)
+            mBackdrop.setBlurAdaptive(this, adaptive);
+    }
 
-        if (mIsDrawingBlur)
-            return;
+    @Override
+    public final void setOnBlurModeListener(OnBlurModeListener listener)
+    {
+        mOnBlurModeListener = listener;
+        if (mBackdrop != null)
+            mBackdrop.setOnBlurModeListener(this, listener);
+    }
 
-        final View source = getBlurSource();
-        if (source == null)
-        {
-            mBlurApi.destroy();
-            return;
-        }
+    /**
+     * 设置每秒最多模糊几次，超出的模糊请求会合并到下一个允许的时间点执行，
+     * 共享同一个{@link BlurBackdrop}的模糊层使用其中最小的限制
+     *
+     * @param maxRate 小于等于0-不限制
+     */
+    public final void setBlurMaxRate(int maxRate)
+    {
+        mBlurMaxRate = maxRate;
+        if (mBackdrop != null)
+            mBackdrop.setBlurMaxRate(this, maxRate);
+    }
 
-        if (mBlurAsync)
-        {
-            mBlurApi.blur(source).async().into(mBlurTarget);
-        } else
-        {
-            applyBlur(mBlurApi.blur(source).bitmap());
-        }
+    /**
+     * 设置是否检测内容变化，默认true
+     * <p>
+     * 开启后每次模糊前会比较压缩后内容的哈希值，和上一次相同则跳过模糊，
+     * 共享同一个{@link BlurBackdrop}的模糊层中有一个关闭就不检测
+     *
+     * @param detection
+     */
+    public final void setBlurChangeDetection(boolean detection)
+    {
+        mBlurChangeDetection = detection;
+        if (mBackdrop != null)
+            mBackdrop.setBlurChangeDetection(this, detection);
     }
 
-    private final BlurApi.Target mBlurTarget = new BlurApi.Target()
+    /**
+     * 设置是否根据源的运动调整模糊质量，默认false
+     * <p>
+     * 开启后源连续变化(滚动，动画)的时候用更大的压缩倍数和更小的模糊半径模糊，停止变化后再用设置的参数模糊一次，
+     * 共享同一个{@link BlurBackdrop}的模糊层都开启才生效
+     *
+     * @param adaptive
+     */
+    public final void setBlurMotionAdaptive(boolean adaptive)
     {
-        @Override
-        public void onBlurred(Bitmap bitmap)
-        {
-            applyBlur(bitmap);
-        }
-    };
+        mBlurMotionAdaptive = adaptive;
+        if (mBackdrop != null)
+            mBackdrop.setBlurMotionAdaptive(this, adaptive);
+    }
+
+    /**
+     * 返回因为内容没有变化而跳过的模糊次数
+     *
+     * @return
+     */
+    public final int getSkippedBlurCount()
+    {
+        return mBackdrop == null ? 0 : mBackdrop.getSkippedBlurCount();
+    }
+
+    /**
+     * 标记源的某个区域发生了变化，下一次模糊只重新模糊受这个区域影响的部分，
+     * 适用于源中只有一小块内容在变化的场景，例如时钟，进度条
+     *
+     * @param dirty 源的坐标系
+     */
+    public final void invalidateBlur(Rect dirty)
+    {
+        if (mBackdrop != null)
+            mBackdrop.invalidateBlur(dirty);
+    }
+
+    /**
+     * 设置源中滚动的view，它滚动的时候复用上一次的模糊结果：把结果平移后只模糊新露出的区域，
+     * 适用于模糊层下面是滚动列表的场景，当前view需要在滚动的view范围内
+     * <p>
+     * 滚动的同时如果源的其他内容也发生了变化，需要调用{@link #invalidateBlur(Rect)}标记
+     *
+     * @param scrollView 通过{@link View#scrollTo(int, int)}滚动的view，可以是源本身，null-不检测
+     */
+    public final void setBlurScrollView(View scrollView)
+    {
+        mBlurScrollView = scrollView == null ? null : new WeakReference<>(scrollView);
+        if (mBackdrop != null)
+            mBackdrop.setBlurScrollView(this, scrollView);
+    }
+
+    /**
+     * 通知源的内容滚动了，下一次模糊会复用上一次的结果，适用于不是通过{@link View#scrollTo(int, int)}滚动的view，
+     * 例如在RecyclerView的onScrolled回调中调用
+     * <p>
+     * 多个模糊层共享同一个源的时候，同一次滚动只需要通知其中一个
+     *
+     * @param dx 滚动的距离，内容向左移动为正
+     * @param dy 滚动的距离，内容向上移动为正
+     */
+    public final void notifyBlurSourceScrolled(int dx, int dy)
+    {
+        if (mBackdrop != null)
+            mBackdrop.notifyBlurSourceScrolled(dx, dy);
+    }
 
-    private void applyBlur(Bitmap bitmap)
+    @Override
+    public final void blur()
+    {
+        if (mBackdrop != null)
+            mBackdrop.blur();
+    }
+
+    /**
+     * 添加到源和参数对应的模糊背景中，已经添加到其他模糊背景的话先移除
+     */
+    private void bindBackdrop()
     {
-        if (bitmap == null)
+        final View source = getBlurSource();
+        final BlurBackdrop backdrop = (source == null || !mIsAttachedToWindow) ? null : BlurBackdrop.obtain(source, mOptions);
+        if (mBackdrop == backdrop)
             return;
 
-        mBitmapBlurred = bitmap;
-        mIsDrawingBlur = true;
+        if (mBackdrop != null)
+            mBackdrop.removeOverlay(this);
+
+        mBackdrop = backdrop;
+        if (backdrop != null)
+        {
+            backdrop.addOverlay(this);
+            backdrop.setBlurAsync(this, mBlurAsync);
+            backdrop.setBlurAdaptive(this, mBlurAdaptive);
+            backdrop.setOnBlurModeListener(this, mOnBlurModeListener);
+            backdrop.setBlurMaxRate(this, mBlurMaxRate);
+            backdrop.setBlurChangeDetection(this, mBlurChangeDetection);
+            backdrop.setBlurMotionAdaptive(this, mBlurMotionAdaptive);
+            backdrop.setBlurScrollView(this, mBlurScrollView == null ? null : mBlurScrollView.get());
+        }
         invalidate();
     }
 
@@ -164,29 +391,59 @@ public class FBlurView extends View implements BlurView
     {
         super.onDraw(canvas);
 
-        final View source = getBlurSource();
-        if (source == null)
+        if (mPyramid != null && drawPyramid(canvas))
             return;
 
-        if (mBitmapBlurred == null || mBitmapBlurred.isRecycled())
-            return;
+        if (mBackdrop != null)
+            mBackdrop.draw(canvas, this);
+    }
 
-        final int scale = mBlurApi.settings().getDownSampling();
+    /**
+     * 绘制半径动画
+     *
+     * @param canvas
+     * @return true-已经处理绘制，false-没有处理，需要绘制模糊背景
+     */
+    private boolean drawPyramid(Canvas canvas)
+    {
+        final View source = getBlurSource();
+        if (source == null)
+            return false;
 
-        canvas.save();
-        canvas.translate(source.getX() - getX(), source.getY() - getY());
-        canvas.scale(scale, scale);
-        canvas.drawBitmap(mBitmapBlurred, 0, 0, null);
-        canvas.restore();
+        final float radius;
+        if (mIsAnimatingRadius)
+        {
+            final long elapsed = AnimationUtils.currentAnimationTimeMillis() - mAnimationStartTime;
+            final float fraction = Math.min(1f, Math.max(0f, (float) elapsed / mAnimationDuration));
+            radius = mAnimationFromRadius + (mAnimationToRadius - mAnimationFromRadius) * fraction;
 
-        post(new Runnable()
+            if (fraction < 1)
+            {
+                invalidate();
+            } else
+            {
+                // 动画结束，绘制之后再切换到新的半径，结果出来之前继续绘制层级
+                mIsAnimatingRadius = false;
+                post(mFinishRadiusAnimationRunnable);
+            }
+        } else
         {
-            @Override
-            public void run()
+            // 还没有切换到新的半径的时候模糊背景是原来半径的结果
+            if (mOptions.getRadius() == mAnimationToRadius
+                    && mBackdrop != null && mBackdrop.draw(canvas, this))
             {
-                mIsDrawingBlur = false;
+                mPyramid.release();
+                mPyramid = null;
+                return true;
             }
-        });
+            radius = mAnimationToRadius;
+        }
+
+        canvas.save();
+        canvas.translate(source.getX() - getX(), source.getY() - getY());
+        mPyramid.draw(canvas, radius);
+        canvas.restore();
+        return true;
     }
 
     @Override
@@ -194,6 +451,7 @@ public class FBlurView extends View implements BlurView
     {
         super.onAttachedToWindow();
         mIsAttachedToWindow = true;
+        bindBackdrop();
     }
 
     @Override
@@ -201,6 +459,7 @@ public class FBlurView extends View implements BlurView
     {
         super.onDetachedFromWindow();
         mIsAttachedToWindow = false;
-        mBlurApi.destroy();
+        cancelBlurRadiusAnimation();
+        bindBackdrop();
     }
 }
@@ -0,0 +1,85 @@
+package com.sd.lib.blur.view;
+
+import android.os.Build;
+import android.view.Choreographer;
+
+/**
+ * 记录帧开始的时间，用来计算当前帧的剩余时间，API 16及以上才有{@link Choreographer}
+ */
+class FrameClock
+{
+    private static final long DEFAULT_FRAME_INTERVAL = 1000000000L / 60;
+
+    private long mFrameTime;
+    private long mFrameInterval = DEFAULT_FRAME_INTERVAL;
+    private boolean mTracking;
+    private Choreographer.FrameCallback mFrameCallback;
+
+    /**
+     * 记录下一帧开始的时间
+     */
+    public void track()
+    {
+        if (mTracking || Build.VERSION.SDK_INT < 16)
+            return;
+
+        if (mFrameCallback == null)
+        {
+            mFrameCallback = new Choreographer.FrameCallback()
+            {
+                @Override
+                public void doFrame(long frameTimeNanos)
+                {
+                    onFrame(frameTimeNanos);
+                }
+            };
+        }
+
+        mTracking = true;
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+
+    private void onFrame(long frameTimeNanos)
+    {
+        final long interval = frameTimeNanos - mFrameTime;
+        if (interval > 0 && interval < mFrameInterval * 2)
+            mFrameInterval = interval;
+
+        mFrameTime = frameTimeNanos;
+        mTracking = false;
+    }
+
+    /**
+     * 返回帧间隔
+     *
+     * @return
+     */
+    public long getFrameInterval()
+    {
+        return mFrameInterval;
+    }
+
+    /**
+     * 当前是否在记录过的帧内
+     *
+     * @return
+     */
+    public boolean isInFrame()
+    {
+        final long elapsed = System.nanoTime() - mFrameTime;
+        return mFrameTime > 0 && elapsed >= 0 && elapsed < mFrameInterval;
+    }
+
+    /**
+     * 返回当前帧的剩余时间，不在记录过的帧内的时候返回一个完整的帧间隔
+     *
+     * @return
+     */
+    public long getRemainingNanos()
+    {
+        if (!isInFrame())
+            return mFrameInterval;
+
+        return mFrameInterval - (System.nanoTime() - mFrameTime);
+    }
+}